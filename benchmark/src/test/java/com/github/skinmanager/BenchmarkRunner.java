@@ -0,0 +1,219 @@
+package com.github.skinmanager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 参照JMH的平均时间模式运行基准测试:先预热,再进行多次固定时长的迭代,每次迭代得到一个 ns/op.
+ * 结果以JMH的JSON格式写入文件,可以直接使用JMH的结果比较工具
+ */
+final class BenchmarkRunner {
+
+    /**
+     * 基准测试的一次操作
+     */
+    interface Body {
+        void run(Blackhole bh) throws Exception;
+    }
+
+    /**
+     * 自己计时的一次操作,只有需要测量的部分计入耗时,用于每次操作后需要清理的基准测试
+     */
+    interface TimedBody {
+        /**
+         * @return 需要测量的部分的纳秒数
+         */
+        long run(Blackhole bh) throws Exception;
+    }
+
+    private static final int MAX_BATCH = 1 << 16;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final List<Result> results = new ArrayList<>();
+
+    BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+    }
+
+    /**
+     * 迭代次数和时长可以通过系统属性benchmark.warmup, benchmark.iterations, benchmark.iterationMillis修改
+     */
+    static BenchmarkRunner fromSystemProperties() {
+        return new BenchmarkRunner(Integer.getInteger("benchmark.warmup", 3),
+                Integer.getInteger("benchmark.iterations", 5),
+                Long.getLong("benchmark.iterationMillis", 500L));
+    }
+
+    void run(String name, Body body) throws Exception {
+        Blackhole bh = new Blackhole();
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(body, bh);
+        }
+        double[] raw = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            raw[i] = iterate(body, bh);
+        }
+        addResult(name, raw);
+    }
+
+    void run(String name, TimedBody body) throws Exception {
+        Blackhole bh = new Blackhole();
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(body, bh);
+        }
+        double[] raw = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            raw[i] = iterate(body, bh);
+        }
+        addResult(name, raw);
+    }
+
+    private void addResult(String name, double[] raw) {
+        Result result = new Result(name, raw);
+        results.add(result);
+        System.out.println(String.format(Locale.US, "%-32s %12.1f ± %.1f ns/op", name, result.score, result.error));
+    }
+
+    /**
+     * 一次迭代,批量运行操作直到达到迭代时长,批量的大小逐渐增加,减少计时本身的影响
+     *
+     * @return 平均每次操作的纳秒数
+     */
+    private double iterate(Body body, Blackhole bh) throws Exception {
+        long ops = 0;
+        long elapsed = 0;
+        int batch = 1;
+        while (elapsed < iterationNanos) {
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                body.run(bh);
+            }
+            elapsed += System.nanoTime() - start;
+            ops += batch;
+            if (batch < MAX_BATCH) {
+                batch <<= 1;
+            }
+        }
+        bh.flush();
+        return (double) elapsed / ops;
+    }
+
+    /**
+     * 一次迭代,逐个运行操作直到实际经过的时间达到迭代时长,只累加操作自己测量的耗时
+     *
+     * @return 平均每次操作的纳秒数
+     */
+    private double iterate(TimedBody body, Blackhole bh) throws Exception {
+        long ops = 0;
+        long measured = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < iterationNanos) {
+            measured += body.run(bh);
+            ops++;
+        }
+        bh.flush();
+        return (double) measured / ops;
+    }
+
+    void writeJson(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"))) {
+            writer.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).writeJson(writer, this);
+                writer.write(i == results.size() - 1 ? "\n" : ",\n");
+            }
+            writer.write("]\n");
+        }
+    }
+
+    private static final class Result {
+        /**
+         * 99.9%置信区间对应的正态分布分位数,和JMH的scoreError含义相同
+         */
+        private static final double Z_999 = 3.291;
+
+        final String name;
+        final double[] raw;
+        final double score;
+        final double error;
+
+        Result(String name, double[] raw) {
+            this.name = name;
+            this.raw = raw;
+            double sum = 0;
+            for (double value : raw) {
+                sum += value;
+            }
+            score = sum / raw.length;
+            double variance = 0;
+            for (double value : raw) {
+                variance += (value - score) * (value - score);
+            }
+            error = raw.length < 2 ? Double.NaN
+                    : Z_999 * Math.sqrt(variance / (raw.length - 1)) / Math.sqrt(raw.length);
+        }
+
+        void writeJson(Writer writer, BenchmarkRunner runner) throws IOException {
+            writer.write("  {\n");
+            writer.write("    \"benchmark\": \"" + escape(name) + "\",\n");
+            writer.write("    \"mode\": \"avgt\",\n");
+            writer.write("    \"threads\": 1,\n");
+            writer.write("    \"forks\": 1,\n");
+            writer.write("    \"jvm\": \"" + escape(System.getProperty("java.home")) + "\",\n");
+            writer.write("    \"vmVersion\": \"" + escape(System.getProperty("java.vm.version")) + "\",\n");
+            writer.write("    \"warmupIterations\": " + runner.warmupIterations + ",\n");
+            writer.write("    \"warmupTime\": \"" + TimeUnit.NANOSECONDS.toMillis(runner.iterationNanos) + " ms\",\n");
+            writer.write("    \"measurementIterations\": " + runner.measurementIterations + ",\n");
+            writer.write("    \"measurementTime\": \"" + TimeUnit.NANOSECONDS.toMillis(runner.iterationNanos) + " ms\",\n");
+            writer.write("    \"primaryMetric\": {\n");
+            writer.write("      \"score\": " + number(score) + ",\n");
+            writer.write("      \"scoreError\": " + number(error) + ",\n");
+            writer.write("      \"scoreUnit\": \"ns/op\",\n");
+            writer.write("      \"rawData\": [[");
+            for (int i = 0; i < raw.length; i++) {
+                if (i > 0) writer.write(", ");
+                writer.write(number(raw[i]));
+            }
+            writer.write("]]\n");
+            writer.write("    },\n");
+            writer.write("    \"secondaryMetrics\": {}\n");
+            writer.write("  }");
+        }
+
+        private static String number(double value) {
+            return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.US, "%.3f", value);
+        }
+
+        private static String escape(String s) {
+            if (s == null) return "";
+            StringBuilder sb = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format(Locale.US, "\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
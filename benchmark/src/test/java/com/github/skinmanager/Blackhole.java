@@ -0,0 +1,29 @@
+package com.github.skinmanager;
+
+/**
+ * 消费基准测试的结果,避免JIT把没有被使用的计算优化掉
+ */
+final class Blackhole {
+
+    private volatile int sink;
+    private int hash;
+
+    void consume(Object o) {
+        hash = hash * 31 + System.identityHashCode(o);
+    }
+
+    void consume(int value) {
+        hash = hash * 31 + value;
+    }
+
+    void consume(long value) {
+        hash = hash * 31 + (int) (value ^ (value >>> 32));
+    }
+
+    /**
+     * 每次迭代结束时调用,将结果写到volatile变量
+     */
+    void flush() {
+        sink = hash;
+    }
+}
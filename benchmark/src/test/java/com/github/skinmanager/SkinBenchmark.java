@@ -0,0 +1,192 @@
+package com.github.skinmanager;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import com.github.skinmanager.utils.SelectorUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 获取skin资源的热点路径的基准测试,使用SkinExample打包出的skin,
+ * 通过 ./gradlew :benchmark:benchmark 运行,结果写入系统属性benchmark.output指定的文件
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class SkinBenchmark {
+
+    /**
+     * SkinExample的applicationId,也是SkinManager默认的skin包名
+     */
+    private static final String SKIN_PACKAGE = "com.github.skin";
+    private static final String FOLDER = "Example";
+    private static final String[] NO_PACKAGES = {};
+    private static final int REPLAY_VIEW_COUNT = 100;
+    private static final long LOAD_TIMEOUT_MILLIS = 30000;
+
+    @Test
+    public void run() throws Exception {
+        String skinPath = System.getProperty("benchmark.skin");
+        assertTrue("SkinExample has not been built: " + skinPath, skinPath != null && new File(skinPath).isFile());
+        Context context = RuntimeEnvironment.getApplication();
+        final SkinManager manager = SkinManager.getInstance();
+        load(manager, context, skinPath);
+        final Resources res = createResources(context, skinPath);
+        BenchmarkRunner runner = BenchmarkRunner.fromSystemProperties();
+
+        final ResourceIdCache ids = new ResourceIdCache(res, new SkinMetrics());
+        runner.run("getIdentifier.uncached", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(res.getIdentifier("colorPrimary", "color", SKIN_PACKAGE));
+            }
+        });
+        runner.run("getIdentifier.cached", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(ids.getIdentifier("color", "colorPrimary", SKIN_PACKAGE, NO_PACKAGES));
+            }
+        });
+        runner.run("getResDrawable", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(manager.getResDrawable("res_drawable"));
+            }
+        });
+
+        runner.run("getColor", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(manager.getColor("colorPrimary"));
+            }
+        });
+        runner.run("getColorWithResult", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(manager.getColorWithResult("colorPrimary"));
+            }
+        });
+        runner.run("getColor.missing", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(manager.getColor("colorMissing"));
+            }
+        });
+
+        //setCacheView遍历注册表中的记录,这里只测遍历,不包括设置到控件上
+        final BindingRegistry registry = new BindingRegistry();
+        final List<View> views = new ArrayList<>(REPLAY_VIEW_COUNT);
+        for (int i = 0; i < REPLAY_VIEW_COUNT; i++) {
+            TextView view = new TextView(context);
+            views.add(view);
+            registry.put(view, new SkinBinding.Background("assetsDrawable", FOLDER, false));
+            registry.put(view, SkinBinding.TextColor.COLOR_TEXT);
+        }
+        runner.run("bindingReplay." + REPLAY_VIEW_COUNT, new BenchmarkRunner.Body() {
+            @Override
+            public void run(final Blackhole bh) {
+                registry.forEach(new BindingRegistry.Visitor() {
+                    @Override
+                    public void visit(View view, SkinBinding binding) {
+                        bh.consume(binding.slot());
+                    }
+                });
+            }
+        });
+
+        final int normal = manager.getColorText();
+        final int pressed = manager.getColorPrimary();
+        runner.run("createColorState", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(SelectorUtils.createColorState(normal, pressed));
+            }
+        });
+
+        //和getDrawable相同的解码过程,包括直接读取apk和位图选项的处理,不经过位图缓存,recycle不计入耗时
+        for (String file : new String[]{"assetsDrawable.png", "assetsDrawable.jpg"}) {
+            for (Bitmap.Config config : new Bitmap.Config[]{Bitmap.Config.RGB_565, Bitmap.Config.ARGB_8888}) {
+                final String path = FOLDER + "/" + file;
+                final BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inPreferredConfig = config;
+                runner.run("decode." + file + "." + config, new BenchmarkRunner.TimedBody() {
+                    @Override
+                    public long run(Blackhole bh) {
+                        long start = System.nanoTime();
+                        Bitmap bitmap = manager.decodeUncached(path, options);
+                        long elapsed = System.nanoTime() - start;
+                        assertTrue("Cannot decode " + path, bitmap != null);
+                        bh.consume(bitmap);
+                        bitmap.recycle();
+                        return elapsed;
+                    }
+                });
+            }
+        }
+        runner.run("getDrawable.cached", new BenchmarkRunner.Body() {
+            @Override
+            public void run(Blackhole bh) {
+                bh.consume(manager.getDrawable("assetsDrawable", FOLDER));
+            }
+        });
+
+        runner.writeJson(new File(System.getProperty("benchmark.output", "build/benchmark/results.json")));
+        //保证注册表中的控件在测试过程中没有被回收
+        assertTrue(views.size() == REPLAY_VIEW_COUNT);
+    }
+
+    /**
+     * 加载skin并等待加载完成,加载完成的回调在主线程中,需要驱动主线程的消息队列
+     */
+    private static void load(SkinManager manager, Context context, String skinPath) throws InterruptedException {
+        final boolean[] complete = {false};
+        manager.initResource(context, skinPath, new SkinManager.OnResourceCompleteListener() {
+            @Override
+            public void onResourceComplete() {
+                complete[0] = true;
+            }
+        });
+        long deadline = System.currentTimeMillis() + LOAD_TIMEOUT_MILLIS;
+        while (!complete[0]) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out loading " + skinPath);
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 和SkinManager中相同的方式创建skin的Resources,用于直接测试查找id和解码
+     */
+    private static Resources createResources(Context context, String skinPath) throws Exception {
+        AssetManager assetManager = AssetManager.class.newInstance();
+        Method addAssetPath = assetManager.getClass().getMethod("addAssetPath", String.class);
+        addAssetPath.invoke(assetManager, skinPath);
+        Resources superRes = context.getResources();
+        return new Resources(assetManager, superRes.getDisplayMetrics(), superRes.getConfiguration());
+    }
+}
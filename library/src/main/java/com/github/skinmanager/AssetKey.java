@@ -0,0 +1,72 @@
+package com.github.skinmanager;
+
+/**
+ * assets下的一张图片,用于{@link SkinManager#prefetch(java.util.Collection)}指定需要预先加载的图片.
+ * 和getDrawable系列方法使用相同的图片选项,预先加载后调用对应的方法可以直接从缓存中获取
+ */
+public final class AssetKey {
+
+    final String fileName;
+    final String folder;
+    final boolean hd;
+
+    private AssetKey(String fileName, String folder, boolean hd) {
+        this.fileName = fileName;
+        this.folder = folder;
+        this.hd = hd;
+    }
+
+    /**
+     * 对应{@link SkinManager#getDrawable(String, String)}
+     *
+     * @param name   xxx.png的xxx部分,不带后缀名
+     * @param folder assets下的文件夹名称
+     */
+    public static AssetKey png(String name, String folder) {
+        return new AssetKey(name + ".png", folder, false);
+    }
+
+    /**
+     * 对应{@link SkinManager#getHDDrawable(String, String)}
+     */
+    public static AssetKey hdPng(String name, String folder) {
+        return new AssetKey(name + ".png", folder, true);
+    }
+
+    /**
+     * 对应{@link SkinManager#getJPGDrawable(String, String)}
+     *
+     * @param name   xxx.jpg的xxx部分,不带后缀名
+     * @param folder assets下的文件夹名称
+     */
+    public static AssetKey jpg(String name, String folder) {
+        return new AssetKey(name + ".jpg", folder, false);
+    }
+
+    /**
+     * 对应{@link SkinManager#getJPGHDDrawable(String, String)}
+     */
+    public static AssetKey hdJpg(String name, String folder) {
+        return new AssetKey(name + ".jpg", folder, true);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AssetKey)) return false;
+        AssetKey other = (AssetKey) o;
+        return hd == other.hd && fileName.equals(other.fileName) && folder.equals(other.folder);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = fileName.hashCode();
+        result = 31 * result + folder.hashCode();
+        return 31 * result + (hd ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return folder + "/" + fileName + (hd ? " (HD)" : "");
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.skinmanager;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+
+/**
+ * 图集中的一张图片,绘制时从共享的图集位图中截取对应的区域.
+ * 固有尺寸和使用{@code new BitmapDrawable(null, bitmap)}创建的单张图片相同
+ */
+final class AtlasDrawable extends Drawable {
+
+    private final State state;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+    private final int width;
+    private final int height;
+
+    AtlasDrawable(Bitmap atlas, Rect region) {
+        this(new State(atlas, region));
+    }
+
+    private AtlasDrawable(State state) {
+        this.state = state;
+        int density = state.atlas.getDensity();
+        width = scaleFromDensity(state.region.width(), density);
+        height = scaleFromDensity(state.region.height(), density);
+    }
+
+    /**
+     * 和BitmapDrawable一样,没有Resources时按{@link DisplayMetrics#DENSITY_DEFAULT}计算固有尺寸
+     */
+    private static int scaleFromDensity(int size, int density) {
+        if (density == Bitmap.DENSITY_NONE || density == DisplayMetrics.DENSITY_DEFAULT) {
+            return size;
+        }
+        return (size * DisplayMetrics.DENSITY_DEFAULT + (density >> 1)) / density;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        canvas.drawBitmap(state.atlas, state.region, getBounds(), paint);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (paint.getAlpha() != alpha) {
+            paint.setAlpha(alpha);
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return paint.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        paint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return width;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return height;
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        return state;
+    }
+
+    /**
+     * 同一张图片的多个Drawable共享图集位图和区域,透明度和颜色过滤各自独立
+     */
+    private static final class State extends ConstantState {
+        final Bitmap atlas;
+        final Rect region;
+
+        State(Bitmap atlas, Rect region) {
+            this.atlas = atlas;
+            this.region = region;
+        }
+
+        @Override
+        public Drawable newDrawable() {
+            return new AtlasDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return 0;
+        }
+    }
+}
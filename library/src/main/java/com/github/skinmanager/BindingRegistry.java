@@ -0,0 +1,168 @@
+package com.github.skinmanager;
+
+import android.view.View;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 控件和需要设置的skin资源的注册表,对控件是弱引用,
+ * 控件所在的界面销毁后控件被回收,对应的记录会被丢弃,不会为已经不存在的控件加载资源.
+ * 切换skin时通过{@link #forEach(Visitor)}将所有记录重新设置一次
+ */
+final class BindingRegistry {
+
+    /**
+     * 遍历注册表中仍然存在的控件和资源
+     */
+    interface Visitor {
+        void visit(View view, SkinBinding binding);
+    }
+
+    private final ReferenceQueue<View> queue = new ReferenceQueue<>();
+    private final HashMap<ViewRef, SkinBinding[]> bindings = new HashMap<>();
+    private long droppedCount;
+
+    /**
+     * 记录控件需要设置的资源,同一个控件同一个位置的资源只保留最后一次记录的
+     */
+    synchronized void put(View view, SkinBinding binding) {
+        if (view == null) return;
+        slotsOf(view)[binding.slot()] = binding;
+    }
+
+    /**
+     * 一次记录控件需要设置的多个资源,只获取一次锁
+     */
+    synchronized void putAll(View view, List<SkinBinding> list) {
+        if (view == null) return;
+        SkinBinding[] slots = slotsOf(view);
+        for (SkinBinding binding : list) {
+            slots[binding.slot()] = binding;
+        }
+    }
+
+    /**
+     * @return 控件每个位置记录的资源, 控件没有记录时为null
+     */
+    synchronized SkinBinding[] get(View view) {
+        SkinBinding[] slots = bindings.get(new ViewRef(view, null));
+        return slots == null ? null : slots.clone();
+    }
+
+    /**
+     * 遍历所有仍然存在的控件的记录,不清空注册表,visitor在调用线程中执行,不持有锁
+     */
+    void forEach(Visitor visitor) {
+        visit(visitor, false);
+    }
+
+    /**
+     * 取出所有仍然存在的控件的记录并清空注册表,visitor在调用线程中执行,不持有锁
+     */
+    void drain(Visitor visitor) {
+        visit(visitor, true);
+    }
+
+    private void visit(Visitor visitor, boolean clear) {
+        List<View> views = new ArrayList<>();
+        List<SkinBinding[]> values = new ArrayList<>();
+        synchronized (this) {
+            expunge();
+            for (Map.Entry<ViewRef, SkinBinding[]> entry : bindings.entrySet()) {
+                View view = entry.getKey().get();
+                if (view == null) {
+                    //已经回收但还没有进入引用队列,保留在注册表中的记录等进入队列时再计数
+                    if (clear) {
+                        droppedCount += count(entry.getValue());
+                    }
+                    continue;
+                }
+                views.add(view);
+                values.add(clear ? entry.getValue() : entry.getValue().clone());
+            }
+            if (clear) {
+                bindings.clear();
+            }
+        }
+        for (int i = 0; i < views.size(); i++) {
+            View view = views.get(i);
+            for (SkinBinding binding : values.get(i)) {
+                if (binding != null) {
+                    visitor.visit(view, binding);
+                }
+            }
+        }
+    }
+
+    synchronized int size() {
+        expunge();
+        return bindings.size();
+    }
+
+    /**
+     * @return 由于控件被回收而丢弃的记录数量
+     */
+    synchronized long getDroppedCount() {
+        expunge();
+        return droppedCount;
+    }
+
+    private SkinBinding[] slotsOf(View view) {
+        expunge();
+        ViewRef key = new ViewRef(view, queue);
+        SkinBinding[] slots = bindings.get(key);
+        if (slots == null) {
+            slots = new SkinBinding[SkinBinding.SLOT_COUNT];
+            bindings.put(key, slots);
+        }
+        return slots;
+    }
+
+    private void expunge() {
+        Object ref;
+        while ((ref = queue.poll()) != null) {
+            SkinBinding[] removed = bindings.remove(ref);
+            if (removed != null) {
+                droppedCount += count(removed);
+            }
+        }
+    }
+
+    private static int count(SkinBinding[] slots) {
+        int count = 0;
+        for (SkinBinding binding : slots) {
+            if (binding != null) count++;
+        }
+        return count;
+    }
+
+    /**
+     * 以控件对象本身作为判断依据的弱引用,控件被回收后只和自己相等
+     */
+    private static final class ViewRef extends WeakReference<View> {
+        private final int hash;
+
+        ViewRef(View view, ReferenceQueue<View> queue) {
+            super(view, queue);
+            hash = System.identityHashCode(view);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ViewRef)) return false;
+            View view = get();
+            return view != null && view == ((ViewRef) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.skinmanager;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * skin中assets下图片解码后的位图缓存,按位图占用的字节数限制大小,超出后淘汰最久未使用的位图.
+ * 缓存的位图会被多个Drawable共享,所以取出后不能对位图进行修改或者recycle.
+ * 同一个key的位图正在解码时,其他线程获取该key会等待这次解码的结果,不会重复解码
+ */
+final class BitmapCache {
+
+    /**
+     * 默认使用应用最大可用内存的1/8作为缓存大小
+     */
+    static final int DEFAULT_MAX_BYTES = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+
+    private final LruCache<Key, Bitmap> cache;
+    private final ConcurrentHashMap<Key, FutureTask<Bitmap>> decoding = new ConcurrentHashMap<>();
+    private final SkinMetrics metrics;
+
+    BitmapCache(int maxBytes, SkinMetrics metrics) {
+        this.metrics = metrics;
+        cache = new LruCache<Key, Bitmap>(Math.max(1, maxBytes)) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                //通过inBitmap复用的位图实际占用的内存可能大于当前尺寸需要的字节数
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    Bitmap get(Key key) {
+        return cache.get(key);
+    }
+
+    void put(Key key, Bitmap bitmap) {
+        if (bitmap != null) {
+            cache.put(key, bitmap);
+        }
+    }
+
+    /**
+     * 获取缓存的位图,没有缓存时使用decoder进行解码并缓存,
+     * 同一个key同时只会有一个线程在解码,其他线程等待该线程的解码结果
+     *
+     * @param key     缓存的key
+     * @param decoder 解码位图,在调用该方法的线程中执行
+     * @return 位图, 解码失败时为null
+     */
+    Bitmap getOrDecode(final Key key, final Callable<Bitmap> decoder) {
+        Bitmap bitmap = cache.get(key);
+        if (bitmap != null) {
+            metrics.increment(SkinMetrics.CACHE_HITS);
+            return bitmap;
+        }
+        metrics.increment(SkinMetrics.CACHE_MISSES);
+        FutureTask<Bitmap> task = new FutureTask<>(new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() throws Exception {
+                //可能在获取缓存和开始解码之间,其他线程已经解码完成了
+                Bitmap bitmap = cache.get(key);
+                if (bitmap == null) {
+                    bitmap = decoder.call();
+                    put(key, bitmap);
+                }
+                return bitmap;
+            }
+        });
+        FutureTask<Bitmap> running = decoding.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                decoding.remove(key, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * 清空缓存并返回之前缓存的可以复用的位图,图集的位图被多张图片共享,不会返回
+     */
+    List<Bitmap> drain() {
+        List<Bitmap> bitmaps = new ArrayList<>();
+        for (Map.Entry<Key, Bitmap> entry : cache.snapshot().entrySet()) {
+            if (!SkinAtlas.IMAGE.equals(entry.getKey().name)) {
+                bitmaps.add(entry.getValue());
+            }
+        }
+        cache.evictAll();
+        return bitmaps;
+    }
+
+    /**
+     * 缓存的key,由skin路径,assets下的文件夹名称,文件全称,位图配置和缩放参数组成,
+     * 同一张图片按不同的尺寸解码时是不同的缓存
+     */
+    static final class Key {
+        final String path;
+        final String folder;
+        final String name;
+        final Bitmap.Config config;
+        final int sampleSize;
+        final int density;
+        final int targetDensity;
+        private final int hash;
+
+        Key(String path, String folder, String name, Bitmap.Config config) {
+            this(path, folder, name, config, 1, 0, 0);
+        }
+
+        /**
+         * @param sampleSize    解码时的{@link android.graphics.BitmapFactory.Options#inSampleSize}
+         * @param density       解码时的{@link android.graphics.BitmapFactory.Options#inDensity},不缩放时为0
+         * @param targetDensity 解码时的{@link android.graphics.BitmapFactory.Options#inTargetDensity},不缩放时为0
+         */
+        Key(String path, String folder, String name, Bitmap.Config config,
+            int sampleSize, int density, int targetDensity) {
+            this.path = path;
+            this.folder = folder;
+            this.name = name;
+            this.config = config;
+            this.sampleSize = sampleSize;
+            this.density = density;
+            this.targetDensity = targetDensity;
+            int h = path == null ? 0 : path.hashCode();
+            h = 31 * h + (folder == null ? 0 : folder.hashCode());
+            h = 31 * h + (name == null ? 0 : name.hashCode());
+            h = 31 * h + (config == null ? 0 : config.hashCode());
+            h = 31 * h + sampleSize;
+            h = 31 * h + density;
+            h = 31 * h + targetDensity;
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && config == key.config && sampleSize == key.sampleSize
+                    && density == key.density && targetDensity == key.targetDensity && equals(path, key.path)
+                    && equals(folder, key.folder) && equals(name, key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.skinmanager;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import io.reactivex.annotations.Nullable;
+
+/**
+ * 可以复用的位图池,解码时通过{@link BitmapFactory.Options#inBitmap}复用其中的位图,减少切换skin时的内存分配.
+ * 按位图占用的字节数以2的幂次分桶,总大小超出限制时丢弃最早放入的位图.
+ * 放入池中的位图必须已经不再被任何控件显示
+ */
+final class BitmapPool {
+
+    private static final int BUCKET_COUNT = 32;
+
+    private final ArrayDeque<Bitmap>[] buckets;
+    /**
+     * 按放入的顺序记录所有位图,超出大小时从最早放入的开始丢弃
+     */
+    private final ArrayDeque<Bitmap> order = new ArrayDeque<>();
+    private final long maxBytes;
+    private long currentBytes;
+
+    @SuppressWarnings("unchecked")
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+        buckets = new ArrayDeque[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * 放入一个不再使用的位图,只接收可修改的位图
+     */
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+        int bytes = bitmap.getAllocationByteCount();
+        if (bytes <= 0 || bytes > maxBytes) return;
+        buckets[bucketOf(bytes)].addLast(bitmap);
+        order.addLast(bitmap);
+        currentBytes += bytes;
+        while (currentBytes > maxBytes) {
+            Bitmap eldest = order.pollFirst();
+            if (eldest == null) break;
+            buckets[bucketOf(eldest.getAllocationByteCount())].remove(eldest);
+            currentBytes -= eldest.getAllocationByteCount();
+        }
+    }
+
+    /**
+     * 取出一个占用字节数不小于byteCount的位图,从最接近的桶开始查找
+     *
+     * @return 可以作为inBitmap的位图, 没有合适的时为null
+     */
+    @Nullable
+    synchronized Bitmap get(int byteCount) {
+        if (byteCount <= 0) return null;
+        for (int i = bucketOf(byteCount); i < BUCKET_COUNT; i++) {
+            Iterator<Bitmap> iterator = buckets[i].iterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                int bytes = bitmap.getAllocationByteCount();
+                if (bytes >= byteCount) {
+                    iterator.remove();
+                    order.remove(bitmap);
+                    currentBytes -= bytes;
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    synchronized void clear() {
+        for (ArrayDeque<Bitmap> bucket : buckets) {
+            bucket.clear();
+        }
+        order.clear();
+        currentBytes = 0;
+    }
+
+    private static int bucketOf(int bytes) {
+        return 31 - Integer.numberOfLeadingZeros(bytes);
+    }
+
+    /**
+     * 估算按照指定的图片选项解码后的位图占用的字节数
+     *
+     * @param width   图片的原始宽度
+     * @param height  图片的原始高度
+     * @param options 解码时的图片选项
+     */
+    static int getByteCount(int width, int height, BitmapFactory.Options options) {
+        int sampleSize = Math.max(1, options.inSampleSize);
+        double w = Math.ceil((double) width / sampleSize);
+        double h = Math.ceil((double) height / sampleSize);
+        if (options.inScaled && options.inDensity != 0 && options.inTargetDensity != 0) {
+            double scale = (double) options.inTargetDensity / options.inDensity;
+            w = Math.floor(w * scale + 0.5);
+            h = Math.floor(h * scale + 0.5);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, w * h * getBytesPerPixel(options.inPreferredConfig));
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) return 2;
+        if (config == Bitmap.Config.ALPHA_8) return 1;
+        return 4;
+    }
+}
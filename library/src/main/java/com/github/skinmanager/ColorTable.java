@@ -0,0 +1,112 @@
+package com.github.skinmanager;
+
+import android.content.res.Resources;
+import android.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import io.reactivex.annotations.Nullable;
+
+/**
+ * skin中定义的所有颜色,加载skin时一次性读取,之后获取颜色不再经过{@link Resources}.
+ * 使用开放寻址的散列表,名称和颜色分别保存在数组中,查找时不会创建对象
+ */
+final class ColorTable {
+
+    private final String packageName;
+    /**
+     * 为null的位置没有颜色
+     */
+    private final String[] names;
+    private final int[] colors;
+    /**
+     * {@link SkinManager#getColorWithResult(String)}的结果,加载时创建,获取时不需要再装箱
+     */
+    private final Pair<Boolean, Integer>[] results;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    private ColorTable(String packageName, ArrayList<String> names, ArrayList<Integer> colors) {
+        this.packageName = packageName;
+        int capacity = 4;
+        while (capacity < names.size() * 2) {
+            capacity <<= 1;
+        }
+        this.names = new String[capacity];
+        this.colors = new int[capacity];
+        this.results = new Pair[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            int slot = spread(name.hashCode()) & mask;
+            while (this.names[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            int color = colors.get(i);
+            this.names[slot] = name;
+            this.colors[slot] = color;
+            this.results[slot] = new Pair<>(Boolean.TRUE, color);
+        }
+    }
+
+    /**
+     * 读取资源索引中skin的所有颜色资源,需要在异步线程中调用.
+     * 无法作为单个颜色读取的资源(引用主题属性的颜色, 颜色选择器)不放入表中,获取时仍然通过{@link Resources}
+     *
+     * @param res   skin.apk对应的Resources
+     * @param index skin的资源索引
+     * @return 颜色表, skin中的资源无法遍历时为null
+     */
+    @Nullable
+    static ColorTable build(Resources res, SkinIndex index) {
+        Map<String, Integer> ids = index.getResourceIds("color");
+        if (ids == null) return null;
+        ArrayList<String> names = new ArrayList<>(ids.size());
+        ArrayList<Integer> colors = new ArrayList<>(ids.size());
+        String packageName = null;
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            try {
+                if (packageName == null) {
+                    packageName = res.getResourcePackageName(entry.getValue());
+                }
+                colors.add(res.getColor(entry.getValue()));
+                names.add(entry.getKey());
+            } catch (RuntimeException ignored) {
+            }
+        }
+        return packageName == null ? null : new ColorTable(packageName, names, colors);
+    }
+
+    /**
+     * 只有按照skin的包名获取资源时,才能使用颜色表代替{@link Resources#getIdentifier(String, String, String)}
+     */
+    boolean isPackage(String name) {
+        return packageName.equals(name);
+    }
+
+    /**
+     * @return 颜色在表中的位置, 没有该颜色时为-1
+     */
+    int indexOf(String name) {
+        int slot = spread(name.hashCode()) & mask;
+        String key;
+        while ((key = names[slot]) != null) {
+            if (key.equals(name)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    int colorAt(int slot) {
+        return colors[slot];
+    }
+
+    Pair<Boolean, Integer> resultAt(int slot) {
+        return results[slot];
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.skinmanager;
+
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 默认的{@link SkinScheduler},固定数量的工作线程从优先级队列中取任务,
+ * 优先级相同的任务按提交的顺序执行.空闲时线程会退出
+ */
+public final class DefaultSkinScheduler implements SkinScheduler {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 线程数量和CPU核心数相同,至少为2
+     */
+    public DefaultSkinScheduler() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param threadCount 最多的工作线程数量
+     */
+    public DefaultSkinScheduler(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be positive");
+        }
+        workers = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "skin-worker-" + count.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task, int priority) {
+        workers.execute(new PriorityTask(task, priority, sequence.getAndIncrement()));
+    }
+
+    @Override
+    public boolean remove(Runnable task) {
+        //PriorityBlockingQueue的迭代器是快照,通过迭代器删除的是队列中的同一个对象
+        Iterator<Runnable> iterator = workers.getQueue().iterator();
+        while (iterator.hasNext()) {
+            Runnable queued = iterator.next();
+            if (queued instanceof PriorityTask && ((PriorityTask) queued).task == task) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getThreadCount() {
+        return workers.getPoolSize();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    /**
+     * @return 正在执行任务的线程数量
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * 停止所有工作线程,还没有执行的任务不再执行.替换为其他的调度后可以调用
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static final class PriorityTask implements Runnable, Comparable<PriorityTask> {
+        private final Runnable task;
+        private final int priority;
+        private final long sequence;
+
+        PriorityTask(Runnable task, int priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PriorityTask o) {
+            if (priority != o.priority) {
+                return priority < o.priority ? -1 : 1;
+            }
+            return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.skinmanager;
+
+/**
+ * skin中常用颜色的快照,创建后不再变化.
+ * 切换skin时会创建新的对象整体替换,读取同一个对象中的颜色时不会读到新旧skin混合的颜色
+ */
+public final class Palette {
+
+    /**
+     * @see SkinManager#getColorPrimary()
+     */
+    public static final int PRIMARY = 0;
+    /**
+     * @see SkinManager#getColorPrimaryLight()
+     */
+    public static final int PRIMARY_LIGHT = 1;
+    /**
+     * @see SkinManager#getColorText()
+     */
+    public static final int TEXT = 2;
+    /**
+     * @see SkinManager#getColorTextLight()
+     */
+    public static final int TEXT_LIGHT = 3;
+    /**
+     * @see SkinManager#getColorTextDim()
+     */
+    public static final int TEXT_DIM = 4;
+    /**
+     * @see SkinManager#getColorTextDark()
+     */
+    public static final int TEXT_DARK = 5;
+    /**
+     * @see SkinManager#getColorBackground()
+     */
+    public static final int BACKGROUND = 6;
+    /**
+     * @see SkinManager#getColorBackgroundLight()
+     */
+    public static final int BACKGROUND_LIGHT = 7;
+    public static final int COUNT = 8;
+
+    /**
+     * 每个颜色在skin的res/values/colors.xml中的名称
+     */
+    private static final String[] NAMES = {
+            "colorPrimary",
+            "colorPrimaryLight",
+            "colorText",
+            "colorTextLight",
+            "colorTextDim",
+            "colorTextDark",
+            "colorBackground",
+            "colorBackgroundLight",
+    };
+
+    /**
+     * skin加载完成前的颜色,全部为0
+     */
+    static final Palette EMPTY = new Palette(new int[COUNT]);
+
+    private final int[] colors;
+
+    private Palette(int[] colors) {
+        this.colors = colors;
+    }
+
+    /**
+     * 从skin中获取所有的颜色,需要在skin加载完成后调用
+     */
+    static Palette load(SkinManager manager) {
+        int[] colors = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            colors[i] = manager.getColor(NAMES[i]);
+        }
+        return new Palette(colors);
+    }
+
+    /**
+     * @param key {@link #PRIMARY}, {@link #TEXT}等
+     * @return 对应的颜色
+     */
+    public int get(int key) {
+        return colors[key];
+    }
+
+    /**
+     * @param key {@link #PRIMARY}, {@link #TEXT}等
+     * @return 颜色在skin的res/values/colors.xml中的名称
+     */
+    public static String getName(int key) {
+        return NAMES[key];
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.skinmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link SkinManager#prefetch(java.util.Collection)}返回的预加载任务,可以查询进度和取消.
+ * 所有方法都可以在任意线程调用
+ */
+public final class PrefetchHandle {
+
+    private final int total;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private final SkinScheduler scheduler;
+    /**
+     * 提交的加载任务,取消时从调度中移除还没有开始的任务
+     */
+    private final List<Runnable> tasks;
+
+    PrefetchHandle(int total, SkinScheduler scheduler) {
+        this.total = total;
+        this.scheduler = scheduler;
+        this.tasks = new ArrayList<>(total);
+    }
+
+    void execute(Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+        }
+        scheduler.execute(task, SkinScheduler.PRIORITY_PREFETCH);
+    }
+
+    /**
+     * @param success 是否加载到了图片
+     */
+    void onLoaded(boolean success) {
+        if (!success) {
+            failed.incrementAndGet();
+        }
+        completed.incrementAndGet();
+    }
+
+    /**
+     * 取消后没有加载的图片
+     */
+    void onSkipped() {
+        skipped.incrementAndGet();
+        completed.incrementAndGet();
+    }
+
+    /**
+     * @return 需要加载的图片数量
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return 已经加载完成的图片数量, 包括没有加载到的图片和取消后跳过的图片
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * @return skin中没有或者解码失败的图片数量
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return 取消后没有加载的图片数量
+     */
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return 是否全部处理完成, 取消后所有的图片加载完成或者被跳过后也为true
+     */
+    public boolean isDone() {
+        return completed.get() == total;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 取消还没有开始的加载,并从调度中移除这些任务,正在解码的图片会继续解码完成并放入缓存
+     */
+    public void cancel() {
+        if (cancelled) return;
+        cancelled = true;
+        List<Runnable> pending;
+        synchronized (tasks) {
+            pending = new ArrayList<>(tasks);
+        }
+        for (Runnable task : pending) {
+            //已经开始执行的任务会在执行时检查取消状态
+            if (scheduler.remove(task)) {
+                onSkipped();
+            }
+        }
+    }
+}
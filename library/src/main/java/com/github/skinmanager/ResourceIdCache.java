@@ -0,0 +1,61 @@
+package com.github.skinmanager;
+
+import android.content.res.Resources;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个Resources对应的资源id缓存,{@link Resources#getIdentifier(String, String, String)}是按名称查找的,比较慢,
+ * 查找过一次的资源类型和名称会缓存查找的结果,查找不到的结果也会缓存为0.
+ * Resources变化时需要重新创建
+ */
+final class ResourceIdCache {
+
+    private final Resources res;
+    private final SkinMetrics metrics;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> types = new ConcurrentHashMap<>();
+
+    ResourceIdCache(Resources res, SkinMetrics metrics) {
+        this.res = res;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 获取指定资源id,先在skin的包名下查找,找不到时依次在兼容的包名下查找
+     *
+     * @param type               资源类型 drawable，style, color, string
+     * @param name               资源名称
+     * @param skinPackage        skin的包名
+     * @param compatiblePackages 兼容处理的包名
+     * @return 资源id, 找不到时为0
+     */
+    int getIdentifier(String type, String name, String skinPackage, String[] compatiblePackages) {
+        ConcurrentHashMap<String, Integer> ids = types.get(type);
+        if (ids == null) {
+            ids = new ConcurrentHashMap<>();
+            ConcurrentHashMap<String, Integer> old = types.putIfAbsent(type, ids);
+            if (old != null) ids = old;
+        }
+        Integer cached = ids.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        metrics.increment(SkinMetrics.GET_IDENTIFIER);
+        int identifier = res.getIdentifier(name, type, skinPackage);
+        if (identifier == 0) {
+            for (String compatiblePackage : compatiblePackages) {
+                metrics.increment(SkinMetrics.GET_IDENTIFIER);
+                identifier = res.getIdentifier(name, type, compatiblePackage);
+                if (identifier != 0) {
+                    break;
+                }
+            }
+        }
+        ids.put(name, identifier);
+        return identifier;
+    }
+
+    void clear() {
+        types.clear();
+    }
+}
@@ -27,7 +27,10 @@ public interface Skin {
 
     /**
      * skin被切换了的标识,切换之后,先设置为1,1s多之后设置为非1即可
+     *
+     * @deprecated 切换skin后会发送{@link SkinManager#ACTION_SKIN_CHANGED}广播通知其他进程,不再需要设置该标识
      */
+    @Deprecated
     String SKIN_PATH_CHANGE_MARK = "com.github.skinchange";
 
     String DEFAULT_PATH = "/system/app/skin.apk";
@@ -6,9 +6,7 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.StateListDrawable;
 import android.os.Bundle;
-import android.os.Handler;
 import android.os.SystemProperties;
-import android.text.TextUtils;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
@@ -18,63 +16,107 @@ import com.github.skinmanager.utils.SelectorUtils;
 import java.util.List;
 import java.util.Locale;
 
+import io.reactivex.disposables.CompositeDisposable;
+
 /**
  * 提供与主题包skin相关的一些方法,如果不需要标题栏只需要一些方法和skin相关的内容,可以只继承该类
- * 使用该类中的颜色成员变量必须保证skin初始化完成,需要在 {@link #onResourceComplete()}中才能使用
+ * 使用该类中的颜色必须保证skin初始化完成,需要在 {@link #onResourceComplete()}中才能使用
  * 但是使用一些方法如果当初始化完成后会直接设定,若未完成会保存待初始化完成后进行设置
+ * 布局中可以通过{@link SkinLayoutFactory}支持的属性声明控件使用的skin资源,
+ * 需要重写{@link #useSkinLayoutFactory()}返回true开启,开启后不能再为LayoutInflater设置Factory
  */
 public class SkinActivity extends Activity implements Skin, SkinManager.OnResourceCompleteListener {
 
     /**
-     * @see SkinManager#colorPrimary
+     * 旧版本的颜色字段,保留一个版本,在{@link #onResourceComplete()}中更新
+     *
+     * @deprecated 使用{@link #getColorPrimary()}
      */
+    @Deprecated
     public int colorPrimary;
     /**
-     * @see SkinManager#colorPrimaryLight
+     * @deprecated 使用{@link #getColorPrimaryLight()}
      */
+    @Deprecated
     public int colorPrimaryLight;
     /**
-     * @see SkinManager#colorText
+     * @deprecated 使用{@link #getColorText()}
      */
+    @Deprecated
     public int colorText;
     /**
-     * @see SkinManager#colorTextLight
+     * @deprecated 使用{@link #getColorTextLight()}
      */
+    @Deprecated
     public int colorTextLight;
     /**
-     * @see SkinManager#colorTextDim
+     * @deprecated 使用{@link #getColorTextDim()}
      */
+    @Deprecated
     public int colorTextDim;
     /**
-     * @see SkinManager#colorTextDark
+     * @deprecated 使用{@link #getColorTextDark()}
      */
+    @Deprecated
     public int colorTextDark;
     /**
-     * @see SkinManager#colorBackground
+     * @deprecated 使用{@link #getColorBackground()}
      */
+    @Deprecated
     public int colorBackground;
     /**
-     * @see SkinManager#colorBackgroundLight
+     * @deprecated 使用{@link #getColorBackgroundLight()}
      */
+    @Deprecated
     public int colorBackgroundLight;
 
     private boolean skinComplete = false;
     private SkinManager skinManager = SkinManager.getInstance();
-    private Handler handler = new Handler();
+    /**
+     * 界面中控件还没有完成的skin资源加载任务,界面销毁时全部取消
+     */
+    final CompositeDisposable skinRequests = new CompositeDisposable();
+    private SkinManager.OnSkinChangeListener skinChangeListener = new SkinManager.OnSkinChangeListener() {
+        @Override
+        public void onSkinChange(String path) {
+            skinComplete = false;
+            SkinActivity.this.onSkinChange();
+        }
+
+        @Override
+        public void onSkinChangeComplete(String path) {
+            onResourceComplete();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        if (useSkinLayoutFactory() && !SkinLayoutFactory.install(this)) {
+            throw new IllegalStateException("LayoutInflater already has a factory, cannot install SkinLayoutFactory");
+        }
         super.onCreate(savedInstanceState);
         onCreate();
+        skinManager.registerOnSkinChangeListener(this, skinChangeListener);
         skinManager.initResource(getApplicationContext(), SystemProperties.get(SKIN_PATH), this);
     }
 
     @Override
     protected void onDestroy() {
-        handler.removeCallbacksAndMessages(null);
+        skinManager.unregisterOnSkinChangeListener(skinChangeListener);
+        skinRequests.dispose();
         super.onDestroy();
     }
 
+    /**
+     * 是否为界面的LayoutInflater设置{@link SkinLayoutFactory},读取布局中声明的skin属性,在onCreate之前调用.
+     * 设置后子类不能再调用LayoutInflater的setFactory/setFactory2,所以默认不开启
+     *
+     * @return 默认为false
+     */
+    protected boolean useSkinLayoutFactory() {
+        return false;
+    }
+
     /**
      * 相当于{@link android.app.Activity#onCreate(Bundle)}
      * 如果你在{@link SkinActivity#onResourceComplete}中使用到了正文界面的控件或者id,就必须
@@ -84,6 +126,62 @@ public class SkinActivity extends Activity implements Skin, SkinManager.OnResour
 
     }
 
+    /**
+     * @see SkinManager#getColorPrimary()
+     */
+    public int getColorPrimary() {
+        return skinManager.getColorPrimary();
+    }
+
+    /**
+     * @see SkinManager#getColorPrimaryLight()
+     */
+    public int getColorPrimaryLight() {
+        return skinManager.getColorPrimaryLight();
+    }
+
+    /**
+     * @see SkinManager#getColorText()
+     */
+    public int getColorText() {
+        return skinManager.getColorText();
+    }
+
+    /**
+     * @see SkinManager#getColorTextLight()
+     */
+    public int getColorTextLight() {
+        return skinManager.getColorTextLight();
+    }
+
+    /**
+     * @see SkinManager#getColorTextDim()
+     */
+    public int getColorTextDim() {
+        return skinManager.getColorTextDim();
+    }
+
+    /**
+     * @see SkinManager#getColorTextDark()
+     */
+    public int getColorTextDark() {
+        return skinManager.getColorTextDark();
+    }
+
+    /**
+     * @see SkinManager#getColorBackground()
+     */
+    public int getColorBackground() {
+        return skinManager.getColorBackground();
+    }
+
+    /**
+     * @see SkinManager#getColorBackgroundLight()
+     */
+    public int getColorBackgroundLight() {
+        return skinManager.getColorBackgroundLight();
+    }
+
     /**
      * 获取skinManager对象,什么时候都可获取到,但是其中的get系列方法需要skin资源初始化完毕,
      * 在{@link SkinActivity#onResourceComplete}中才能正常使用get系列方法
@@ -107,16 +205,16 @@ public class SkinActivity extends Activity implements Skin, SkinManager.OnResour
      */
     @Override
     public void onResourceComplete() {
-        colorPrimary = skinManager.colorPrimary;
-        colorPrimaryLight = skinManager.colorPrimaryLight;
-        colorText = skinManager.colorText;
-        colorTextLight = skinManager.colorTextLight;
-        colorTextDim = skinManager.colorTextDim;
-        colorTextDark = skinManager.colorTextDark;
-        colorBackground = skinManager.colorBackground;
-        colorBackgroundLight = skinManager.colorBackgroundLight;
+        Palette palette = skinManager.getPalette();
+        colorPrimary = palette.get(Palette.PRIMARY);
+        colorPrimaryLight = palette.get(Palette.PRIMARY_LIGHT);
+        colorText = palette.get(Palette.TEXT);
+        colorTextLight = palette.get(Palette.TEXT_LIGHT);
+        colorTextDim = palette.get(Palette.TEXT_DIM);
+        colorTextDark = palette.get(Palette.TEXT_DARK);
+        colorBackground = palette.get(Palette.BACKGROUND);
+        colorBackgroundLight = palette.get(Palette.BACKGROUND_LIGHT);
         skinComplete = true;
-        handler.post(checkSkinChange);
     }
 
     public void checkSkinPath() {
@@ -134,52 +232,21 @@ public class SkinActivity extends Activity implements Skin, SkinManager.OnResour
     }
 
     /**
-     * 每秒检测skin路径是否变化,变化会杀掉自己进程
-     */
-    private Runnable checkSkinChange = new Runnable() {
-        @Override
-        public void run() {
-            String s = SystemProperties.get(SKIN_PATH_CHANGE_MARK);
-            if ((!TextUtils.isEmpty(s)) && s.equals("1")) {
-                onSkinChange();
-                android.os.Process.killProcess(android.os.Process.myPid());
-            }
-            handler.postDelayed(this, 1000);
-        }
-    };
-
-    /**
-     * 在检测到skin变化后会在杀掉自己进程前调用
+     * 在检测到其他进程切换了skin后,开始切换skin前调用,
+     * 如果设置了{@link SkinManager#setRestartOnSkinChange(boolean)}会在杀掉自己进程前调用
      */
     public void onSkinChange() {
     }
 
     /**
-     * 切换皮肤的方法
+     * 切换皮肤的方法,同时会通知其他进程切换到同一个皮肤
      *
      * @param skinPath 皮肤包的路径
      */
     public void changeSkin(String skinPath, final SkinManager.OnResourceCompleteListener listener) {
         SystemProperties.set(SKIN_PATH, skinPath);
         skinComplete = false;
-        handler.removeCallbacks(checkSkinChange);
-        skinManager.reloadResource(getApplicationContext(), skinPath,
-                new SkinManager.OnResourceCompleteListener() {
-                    @Override
-                    public void onResourceComplete() {
-                        SkinActivity.this.onResourceComplete();
-                        if (listener != null) listener.onResourceComplete();
-                        handler.removeCallbacks(checkSkinChange);
-                        SystemProperties.set(SKIN_PATH_CHANGE_MARK, "1");
-                        handler.postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                SystemProperties.set(SKIN_PATH_CHANGE_MARK, "0");
-                                handler.post(checkSkinChange);
-                            }
-                        }, 2200);
-                    }
-                });
+        skinManager.changeSkin(getApplicationContext(), skinPath, listener);
     }
 
     @Override
@@ -242,6 +309,45 @@ public class SkinActivity extends Activity implements Skin, SkinManager.OnResour
         return skinManager.getColor(name);
     }
 
+    /**
+     * 通过句柄获取颜色,{@link android.content.Context#getColor(int)}是final方法,所以使用不同的名称
+     *
+     * @see SkinManager#getColor(int)
+     */
+    public int getSkinColor(int colorKey) {
+        return skinManager.getColor(colorKey);
+    }
+
+    /**
+     * 通过句柄获取assets下的图片,{@link android.content.Context#getDrawable(int)}是final方法,所以使用不同的名称
+     *
+     * @see SkinManager#getDrawable(int)
+     */
+    public Drawable getSkinDrawable(int drawableKey) {
+        return skinManager.getDrawable(drawableKey);
+    }
+
+    /**
+     * @see SkinManager#getHDDrawable(int)
+     */
+    public Drawable getSkinHDDrawable(int drawableKey) {
+        return skinManager.getHDDrawable(drawableKey);
+    }
+
+    /**
+     * @see SkinManager#setBackground(View, int)
+     */
+    public void setBackground(View view, int drawableKey) {
+        skinManager.setBackground(view, drawableKey);
+    }
+
+    /**
+     * @see SkinManager#setHDBackground(View, int)
+     */
+    public void setHDBackground(View view, int drawableKey) {
+        skinManager.setHDBackground(view, drawableKey);
+    }
+
     @Override
     public StateListDrawable getSelector(String normal, String pressed) {
         return skinManager.getSelector(normal, pressed);
@@ -717,25 +823,25 @@ public class SkinActivity extends Activity implements Skin, SkinManager.OnResour
 
     public void setPrimaryLines(View... views) {
         for (View view : views) {
-            view.setBackground(new ColorDrawable(colorPrimary));
+            view.setBackground(new ColorDrawable(getColorPrimary()));
         }
     }
 
     public void setPrimaryLine(View parent, int... ids) {
         for (int id : ids) {
-            parent.findViewById(id).setBackground(new ColorDrawable(colorPrimary));
+            parent.findViewById(id).setBackground(new ColorDrawable(getColorPrimary()));
         }
     }
 
     public void setTextColorLines(View... views) {
         for (View view : views) {
-            view.setBackgroundColor(colorText);
+            view.setBackgroundColor(getColorText());
         }
     }
 
     public void setTextColorLine(View parent, int... ids) {
         for (int id : ids) {
-            parent.findViewById(id).setBackgroundColor(colorText);
+            parent.findViewById(id).setBackgroundColor(getColorText());
         }
     }
 
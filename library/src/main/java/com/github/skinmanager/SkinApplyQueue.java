@@ -0,0 +1,238 @@
+package com.github.skinmanager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * 设置skin资源到控件的队列.
+ * 资源在{@link SkinScheduler}的工作线程中加载,正在显示的控件优先加载,
+ * 加载完成的结果先放入队列,在下一帧的{@link Choreographer}回调中一次性设置到控件上,
+ * 避免每个控件都单独切换一次线程并向主线程发送一次消息
+ */
+final class SkinApplyQueue implements Choreographer.FrameCallback {
+
+    /**
+     * 一次设置资源的任务,{@link #load()}在工作线程中执行,{@link #apply(Object)}在主线程中执行.
+     * 取消后不会再加载和设置资源
+     *
+     * @param <T> 加载的资源类型
+     */
+    abstract static class Task<T> implements Runnable, Disposable {
+        private SkinApplyQueue queue;
+        private int generation;
+        private T result;
+        private volatile boolean disposed = false;
+        /**
+         * 任务所在的控件和界面的任务集合,任务结束时从中移除
+         */
+        private CompositeDisposable viewTasks;
+        private CompositeDisposable ownerTasks;
+
+        /**
+         * 在工作线程中加载资源
+         */
+        abstract T load();
+
+        /**
+         * 在主线程中将加载的资源设置到控件上
+         */
+        abstract void apply(T result);
+
+        @Override
+        public final void run() {
+            if (disposed || generation != queue.generation.get()) {
+                //已经取消,或者提交后切换了skin,切换时会重新设置所有控件,不需要再加载
+                queue.finish(this);
+                return;
+            }
+            try {
+                result = load();
+            } catch (Exception e) {
+                e.printStackTrace();
+                queue.finish(this);
+                return;
+            }
+            queue.publish(this);
+        }
+
+        @Override
+        public final void dispose() {
+            disposed = true;
+        }
+
+        @Override
+        public final boolean isDisposed() {
+            return disposed;
+        }
+
+        final void attach(CompositeDisposable viewTasks, CompositeDisposable ownerTasks) {
+            this.viewTasks = viewTasks;
+            this.ownerTasks = ownerTasks;
+            viewTasks.add(this);
+            if (ownerTasks != null) {
+                ownerTasks.add(this);
+            }
+        }
+
+        private void release() {
+            if (viewTasks != null) {
+                viewTasks.delete(this);
+            }
+            if (ownerTasks != null) {
+                ownerTasks.delete(this);
+            }
+        }
+
+        final void applyResult() {
+            T r = result;
+            result = null;
+            apply(r);
+        }
+    }
+
+    private final ViewRequests requests;
+    private volatile SkinScheduler scheduler = new DefaultSkinScheduler();
+    private final ConcurrentLinkedQueue<Task<?>> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean frameScheduled = new AtomicBoolean(false);
+    private final AtomicInteger generation = new AtomicInteger();
+    /**
+     * 已经提交但还没有设置到控件上的任务数量
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Runnable> idleActions = new ConcurrentLinkedQueue<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile Choreographer choreographer;
+
+    SkinApplyQueue(ViewRequests requests) {
+        this.requests = requests;
+    }
+
+    SkinScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 之后提交的任务使用新的调度,已经提交的任务仍然在原来的调度中执行
+     */
+    void setScheduler(SkinScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 提交一个任务,需要在主线程调用
+     *
+     * @param views 任务设置资源的控件,有正在显示的控件时优先加载.
+     *              只有一个控件时,控件从窗口移除后任务会被取消
+     */
+    void submit(Task<?> task, View... views) {
+        task.queue = this;
+        task.generation = generation.get();
+        if (views.length == 1 && views[0] != null) {
+            requests.track(task, views[0]);
+        }
+        pending.incrementAndGet();
+        scheduler.execute(task, priorityOf(views));
+    }
+
+    /**
+     * 还没有添加到窗口的控件一般是正在创建的界面中的控件,和正在显示的控件一样优先加载,
+     * 只有已经添加到窗口但是没有显示的控件最后加载
+     */
+    private static int priorityOf(View[] views) {
+        for (View view : views) {
+            if (view != null && (!view.isAttachedToWindow() || view.isShown())) {
+                return SkinScheduler.PRIORITY_VISIBLE;
+            }
+        }
+        return SkinScheduler.PRIORITY_OFFSCREEN;
+    }
+
+    /**
+     * 取消控件以及所有子控件还没有完成的任务,需要在主线程调用
+     */
+    void cancel(View root) {
+        requests.cancel(root);
+    }
+
+    /**
+     * 使已经提交的任务失效,切换skin后调用,之前提交的任务不会再加载资源和设置到控件上.
+     * 需要在主线程调用
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * 在所有已经提交的任务都设置到控件上之后,在主线程中执行
+     */
+    void runWhenIdle(Runnable action) {
+        idleActions.offer(action);
+        scheduleFrame();
+    }
+
+    private void publish(Task<?> task) {
+        finished.offer(task);
+        scheduleFrame();
+    }
+
+    /**
+     * 任务没有加载出结果,不需要设置到控件上
+     */
+    private void finish(Task<?> task) {
+        task.release();
+        if (pending.decrementAndGet() == 0 && !idleActions.isEmpty()) {
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled.compareAndSet(false, true)) {
+            Choreographer c = choreographer;
+            if (c != null) {
+                c.postFrameCallback(this);
+            } else {
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        //Choreographer是和线程绑定的,需要在主线程获取
+                        choreographer = Choreographer.getInstance();
+                        choreographer.postFrameCallback(SkinApplyQueue.this);
+                    }
+                });
+            }
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled.set(false);
+        Task<?> task;
+        int current = generation.get();
+        while ((task = finished.poll()) != null) {
+            if (task.generation == current && !task.disposed) {
+                try {
+                    task.applyResult();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            task.release();
+            pending.decrementAndGet();
+        }
+        if (pending.get() == 0) {
+            Runnable action;
+            while ((action = idleActions.poll()) != null) {
+                action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.skinmanager;
+
+import android.content.res.Resources;
+import android.graphics.Rect;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * skin打包时合并的图集.skin的构建会把一个文件夹下的小图片合并成一张 skin_atlas.png,
+ * 并在 skin_atlas.idx 中记录每张图片在图集中的位置,每行为 名称 x y 宽 高.
+ * 图集中的图片从图集的位图中截取,一个文件夹只需要解码一次
+ */
+final class SkinAtlas {
+
+    static final String IMAGE = "skin_atlas.png";
+    static final String INDEX = "skin_atlas.idx";
+
+    private static final SkinAtlas EMPTY = new SkinAtlas(Collections.<String, Region>emptyMap());
+
+    /**
+     * 图集中的一张图片
+     */
+    static final class Region {
+        /**
+         * 图集所在的文件夹
+         */
+        final String folder;
+        /**
+         * 图片在图集中的位置
+         */
+        final Rect bounds;
+
+        Region(String folder, Rect bounds) {
+            this.folder = folder;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * assets下的图片路径和在图集中的位置
+     */
+    private final Map<String, Region> regions;
+
+    private SkinAtlas(Map<String, Region> regions) {
+        this.regions = regions;
+    }
+
+    /**
+     * 读取skin中所有文件夹的图集索引,需要在异步线程中调用
+     *
+     * @param res   skin.apk对应的Resources
+     * @param index skin的资源索引,用于找到包含图集的文件夹
+     */
+    static SkinAtlas build(Resources res, SkinIndex index) {
+        Set<String> assets = index.getAssets();
+        if (assets == null) return EMPTY;
+        Map<String, Region> regions = new HashMap<>();
+        for (String path : assets) {
+            if (!path.endsWith("/" + INDEX)) continue;
+            String folder = path.substring(0, path.length() - INDEX.length() - 1);
+            if (!assets.contains(folder + "/" + IMAGE)) continue;
+            try {
+                readIndex(res, folder, regions);
+            } catch (Exception ignored) {
+            }
+        }
+        return regions.isEmpty() ? EMPTY : new SkinAtlas(Collections.unmodifiableMap(regions));
+    }
+
+    private static void readIndex(Resources res, String folder, Map<String, Region> out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                res.getAssets().open(folder + "/" + INDEX), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] fields = line.split("\\s+");
+                if (fields.length != 5) continue;
+                int x = Integer.parseInt(fields[1]);
+                int y = Integer.parseInt(fields[2]);
+                int width = Integer.parseInt(fields[3]);
+                int height = Integer.parseInt(fields[4]);
+                out.put(folder + "/" + fields[0], new Region(folder, new Rect(x, y, x + width, y + height)));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param path assets下的图片路径,如 Public/line_horizontal.png
+     * @return 图片不在图集中时为null
+     */
+    Region get(String path) {
+        return regions.get(path);
+    }
+}
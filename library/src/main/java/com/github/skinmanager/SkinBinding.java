@@ -0,0 +1,394 @@
+package com.github.skinmanager;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.github.skinmanager.utils.SelectorUtils;
+
+/**
+ * 控件需要设置的skin资源,skin加载完成或者切换skin后通过{@link #apply(SkinManager, View)}重新进行设置.
+ * 每种设置方法对应一个不可变的子类,直接保存调用时的参数
+ */
+abstract class SkinBinding {
+
+    /**
+     * 同一个控件的同一个位置只保留最后一次设置的资源
+     */
+    static final int SLOT_BACKGROUND = 0;
+    static final int SLOT_TEXT_COLOR = 1;
+    static final int SLOT_TYPEFACE = 2;
+    static final int SLOT_COMPOUND_DRAWABLES = 3;
+    static final int SLOT_COUNT = 4;
+
+    private SkinBinding() {
+    }
+
+    abstract int slot();
+
+    /**
+     * 在主线程中将资源设置到控件上
+     */
+    abstract void apply(SkinManager manager, View view);
+
+    /**
+     * 资源已经缓存时在调用线程中直接设置,不经过加载队列
+     *
+     * @return 是否已经设置, 为false时需要通过{@link #apply(SkinManager, View)}设置
+     */
+    boolean applyCached(SkinManager manager, View view) {
+        return false;
+    }
+
+    /**
+     * assets下的图片背景
+     */
+    static final class Background extends SkinBinding {
+        final String name;
+        final String folder;
+        final boolean hd;
+
+        Background(String name, String folder, boolean hd) {
+            this.name = name;
+            this.folder = folder;
+            this.hd = hd;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            if (hd) {
+                manager.setHDBackground(view, name, folder);
+            } else {
+                manager.setBackground(view, name, folder);
+            }
+        }
+
+        @Override
+        boolean applyCached(SkinManager manager, View view) {
+            Drawable drawable = manager.getCachedDrawable(name, folder, hd);
+            if (drawable == null) return false;
+            view.setBackground(drawable);
+            return true;
+        }
+    }
+
+    /**
+     * 按尺寸缩小解码的assets下的图片背景
+     */
+    static final class SizedBackground extends SkinBinding {
+        final String name;
+        final String folder;
+        final boolean hd;
+        /**
+         * 小于等于0时使用控件的尺寸
+         */
+        final int width;
+        final int height;
+
+        SizedBackground(String name, String folder, boolean hd, int width, int height) {
+            this.name = name;
+            this.folder = folder;
+            this.hd = hd;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setSizedBackground(view, name, folder, hd, width, height);
+        }
+    }
+
+    /**
+     * 通过句柄获取的assets下的图片背景
+     */
+    static final class KeyBackground extends SkinBinding {
+        final int key;
+        final boolean hd;
+
+        KeyBackground(int key, boolean hd) {
+            this.key = key;
+            this.hd = hd;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setKeyBackground(view, key, hd);
+        }
+    }
+
+    /**
+     * skin中指定名称的颜色作为背景
+     */
+    static final class BackgroundColor extends SkinBinding {
+        final String name;
+
+        BackgroundColor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setBackgroundColor(view, name);
+        }
+    }
+
+    /**
+     * assets下的2张图片合成的状态选择器背景
+     */
+    static final class Selector extends SkinBinding {
+        final String normal;
+        final String pressed;
+        final String folder;
+
+        Selector(String normal, String pressed, String folder) {
+            this.normal = normal;
+            this.pressed = pressed;
+            this.folder = folder;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setSelector(view, normal, pressed, folder);
+        }
+    }
+
+    /**
+     * 进度条的背景和进度图片
+     */
+    static final class ProgressDrawable extends SkinBinding {
+        final String background;
+        final String progress;
+        final String folder;
+
+        ProgressDrawable(String background, String progress, String folder) {
+            this.background = background;
+            this.progress = progress;
+            this.folder = folder;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setProgressBarDrawable((ProgressBar) view, background, progress, folder);
+        }
+    }
+
+    /**
+     * res/drawable下的图片背景
+     */
+    static final class ResBackground extends SkinBinding {
+        final String name;
+
+        ResBackground(String name) {
+            this.name = name;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setResBackground(view, name);
+        }
+    }
+
+    /**
+     * 对话框背景和分割线这些公用的背景
+     */
+    static final class CommonBackground extends SkinBinding {
+        static final int DIALOG = 0;
+        static final int LINE_HORIZONTAL = 1;
+        static final int LINE_VERTICAL = 2;
+
+        static final CommonBackground DIALOG_BACKGROUND = new CommonBackground(DIALOG);
+        static final CommonBackground HORIZONTAL_LINE = new CommonBackground(LINE_HORIZONTAL);
+        static final CommonBackground VERTICAL_LINE = new CommonBackground(LINE_VERTICAL);
+
+        final int kind;
+
+        private CommonBackground(int kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_BACKGROUND;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            switch (kind) {
+                case DIALOG:
+                    manager.setDialogBackground(view);
+                    break;
+                case LINE_HORIZONTAL:
+                    manager.setHorizontalLine(view);
+                    break;
+                case LINE_VERTICAL:
+                    manager.setVerticalLine(view);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * skin中的常用文字颜色
+     */
+    static final class TextColor extends SkinBinding {
+        static final int PRIMARY = 0;
+        static final int TEXT = 1;
+        static final int TEXT_LIGHT = 2;
+        static final int TEXT_DIM = 3;
+        static final int TEXT_DARK = 4;
+        static final int PRIMARY_STATE = 5;
+
+        static final TextColor COLOR_PRIMARY = new TextColor(PRIMARY);
+        static final TextColor COLOR_TEXT = new TextColor(TEXT);
+        static final TextColor COLOR_TEXT_LIGHT = new TextColor(TEXT_LIGHT);
+        static final TextColor COLOR_TEXT_DIM = new TextColor(TEXT_DIM);
+        static final TextColor COLOR_TEXT_DARK = new TextColor(TEXT_DARK);
+        static final TextColor COLOR_STATE = new TextColor(PRIMARY_STATE);
+
+        final int kind;
+
+        private TextColor(int kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_TEXT_COLOR;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            TextView textView = (TextView) view;
+            Palette palette = manager.getPalette();
+            switch (kind) {
+                case PRIMARY:
+                    textView.setTextColor(palette.get(Palette.PRIMARY));
+                    break;
+                case TEXT:
+                    textView.setTextColor(palette.get(Palette.TEXT));
+                    break;
+                case TEXT_LIGHT:
+                    textView.setTextColor(palette.get(Palette.TEXT_LIGHT));
+                    break;
+                case TEXT_DIM:
+                    textView.setTextColor(palette.get(Palette.TEXT_DIM));
+                    break;
+                case TEXT_DARK:
+                    textView.setTextColor(palette.get(Palette.TEXT_DARK));
+                    break;
+                case PRIMARY_STATE:
+                    textView.setTextColor(SelectorUtils.createColorState(palette.get(Palette.TEXT),
+                            palette.get(Palette.PRIMARY)));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * skin中指定名称的文字颜色
+     */
+    static final class NamedTextColor extends SkinBinding {
+        final String name;
+
+        NamedTextColor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_TEXT_COLOR;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setTextColor((TextView) view, name);
+        }
+    }
+
+    /**
+     * skin中assets/Typeface下的字体
+     */
+    static final class Font extends SkinBinding {
+        final String name;
+
+        Font(String name) {
+            this.name = name;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_TYPEFACE;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setTypeface((TextView) view, name);
+        }
+    }
+
+    /**
+     * TextView上下左右的图片
+     */
+    static final class CompoundDrawables extends SkinBinding {
+        final String left;
+        final String top;
+        final String right;
+        final String bottom;
+        final String folder;
+
+        CompoundDrawables(String left, String top, String right, String bottom, String folder) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.folder = folder;
+        }
+
+        @Override
+        int slot() {
+            return SLOT_COMPOUND_DRAWABLES;
+        }
+
+        @Override
+        void apply(SkinManager manager, View view) {
+            manager.setCompoundDrawables((TextView) view, left, top, right, bottom, folder);
+        }
+    }
+}
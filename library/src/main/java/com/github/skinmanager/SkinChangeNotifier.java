@@ -0,0 +1,125 @@
+package com.github.skinmanager;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+
+/**
+ * 进程间的skin切换通知.
+ * 切换skin的进程发送{@link SkinManager#ACTION_SKIN_CHANGED}广播,
+ * 每个进程只在有监听时动态注册一个接收者,收到广播后才去加载新的skin,不需要定时检查skin是否变化.
+ * 广播的发送和接收都需要{@link SkinManager#PERMISSION_SKIN_CHANGED}权限.
+ * 广播是异步送达的,每个广播带有发送的进程和切换的时间,忽略本进程发出的广播以及比最近一次切换更早的广播,
+ * 快速连续切换或者多个进程同时切换时,所有进程最终都使用最后一次切换的skin
+ */
+final class SkinChangeNotifier extends BroadcastReceiver {
+
+    private static final String EXTRA_SENDER = "com.github.skinmanager.extra.SENDER";
+    private static final String EXTRA_TIME = "com.github.skinmanager.extra.TIME";
+    /**
+     * 标识本进程,pid可能被重启后的其他进程复用,加上进程启动的时间
+     */
+    private static final String SENDER = android.os.Process.myPid() + ":" + System.nanoTime();
+
+    private final SkinManager manager;
+    private final ArrayList<SkinManager.OnSkinChangeListener> listeners = new ArrayList<>();
+    private Context registeredContext;
+    /**
+     * 最近一次切换skin的时间,包括本进程切换和收到其他进程的广播
+     */
+    private long lastChangeTime;
+
+    SkinChangeNotifier(SkinManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * 添加监听,第一个监听添加时注册接收者,需要在主线程调用
+     */
+    void add(Context context, SkinManager.OnSkinChangeListener listener) {
+        if (listener == null || listeners.contains(listener)) return;
+        listeners.add(listener);
+        if (registeredContext == null) {
+            registeredContext = context.getApplicationContext();
+            registeredContext.registerReceiver(this, new IntentFilter(SkinManager.ACTION_SKIN_CHANGED),
+                    SkinManager.PERMISSION_SKIN_CHANGED, null);
+        }
+    }
+
+    /**
+     * 移除监听,最后一个监听移除时注销接收者,需要在主线程调用
+     */
+    void remove(SkinManager.OnSkinChangeListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty() && registeredContext != null) {
+            registeredContext.unregisterReceiver(this);
+            registeredContext = null;
+        }
+    }
+
+    /**
+     * 发送skin切换的广播,其他进程收到后会切换到新的skin
+     */
+    void send(Context context, String path) {
+        long time = System.currentTimeMillis();
+        synchronized (this) {
+            //时钟被调回时仍然保证本进程的切换时间是递增的
+            lastChangeTime = Math.max(time, lastChangeTime + 1);
+            time = lastChangeTime;
+        }
+        Intent intent = new Intent(SkinManager.ACTION_SKIN_CHANGED);
+        intent.putExtra(SkinManager.EXTRA_SKIN_PATH, TextUtils.isEmpty(path) ? SkinManager.DEFAULT_PATH : path);
+        intent.putExtra(EXTRA_SENDER, SENDER);
+        intent.putExtra(EXTRA_TIME, time);
+        context.sendBroadcast(intent, SkinManager.PERMISSION_SKIN_CHANGED);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (SENDER.equals(intent.getStringExtra(EXTRA_SENDER))) {
+            //本进程发出的广播
+            return;
+        }
+        long time = intent.getLongExtra(EXTRA_TIME, 0);
+        synchronized (this) {
+            if (time <= lastChangeTime) {
+                //之后又切换过skin,这是一个延迟送达的旧的广播
+                return;
+            }
+            lastChangeTime = time;
+        }
+        String path = intent.getStringExtra(SkinManager.EXTRA_SKIN_PATH);
+        if (manager.isSkinPath(path)) {
+            //已经切换过了
+            return;
+        }
+        dispatchSkinChange(path);
+        if (manager.isRestartOnSkinChange()) {
+            android.os.Process.killProcess(android.os.Process.myPid());
+            return;
+        }
+        manager.reloadResource(context.getApplicationContext(), path, null);
+    }
+
+    /**
+     * 开始切换skin前通知所有监听
+     */
+    void dispatchSkinChange(String path) {
+        for (SkinManager.OnSkinChangeListener listener : new ArrayList<>(listeners)) {
+            listener.onSkinChange(path);
+        }
+    }
+
+    /**
+     * 切换skin完成后通知所有监听
+     */
+    void dispatchSkinChangeComplete(String path) {
+        for (SkinManager.OnSkinChangeListener listener : new ArrayList<>(listeners)) {
+            listener.onSkinChangeComplete(path);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.skinmanager;
+
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * skin.apk的资源索引,加载skin时扫描一次,记录assets下所有文件的路径以及skin中定义的color和drawable的名称.
+ * 获取资源时可以直接知道资源在哪个skin中,不需要通过打开失败抛出异常再去默认的skin中查找.
+ * 该对象是只读的,可以通过{@link SkinManager#getSkinIndex()}获取用于诊断
+ */
+public final class SkinIndex {
+
+    /**
+     * 应用的资源包id,skin.apk作为普通apk编译,资源id都为0x7fxxxxxx
+     */
+    static final int APP_PACKAGE_ID = 0x7f;
+    /**
+     * 资源类型id的最大值,aapt分配的类型id是从1开始连续的
+     */
+    static final int MAX_TYPE_ID = 0xff;
+    /**
+     * assets下扫描的最大目录深度,skin一般为 assets/文件夹/图片 的结构
+     */
+    private static final int MAX_ASSET_DEPTH = 4;
+
+    private final String path;
+    private final Set<String> assets;
+    /**
+     * 资源类型,资源名称和资源id
+     */
+    private final Map<String, Map<String, Integer>> resources;
+
+    private SkinIndex(String path, Set<String> assets, Map<String, Map<String, Integer>> resources) {
+        this.path = path;
+        this.assets = assets;
+        this.resources = resources;
+    }
+
+    /**
+     * 扫描skin的资源建立索引,该操作比较耗时,需要在异步线程中调用
+     *
+     * @param path skin.apk的路径
+     * @param res  skin.apk对应的Resources
+     */
+    static SkinIndex build(String path, Resources res) {
+        Set<String> assets = null;
+        try {
+            Set<String> set = new HashSet<>();
+            listAssets(res.getAssets(), "", set, 0);
+            assets = Collections.unmodifiableSet(set);
+        } catch (Exception ignored) {
+        }
+        Map<String, Map<String, Integer>> resources = null;
+        try {
+            resources = Collections.unmodifiableMap(listResources(res, "color", "drawable"));
+        } catch (Exception ignored) {
+        }
+        return new SkinIndex(path, assets, resources);
+    }
+
+    private static void listAssets(AssetManager am, String dir, Set<String> out, int depth) throws Exception {
+        String[] names = am.list(dir);
+        if (names == null) return;
+        for (String name : names) {
+            String child = dir.isEmpty() ? name : dir + "/" + name;
+            String[] sub = depth < MAX_ASSET_DEPTH ? am.list(child) : null;
+            if (sub != null && sub.length > 0) {
+                listAssets(am, child, out, depth + 1);
+            } else if (depth > 0) {
+                out.add(child);
+            }
+        }
+    }
+
+    /**
+     * 资源id的结构为 0xPPTTEEEE,包id,类型id,条目id,同一个类型的条目id是从0开始连续的,
+     * 依次遍历即可得到skin中所有指定类型的资源名称
+     */
+    private static Map<String, Map<String, Integer>> listResources(Resources res, String... types) {
+        Map<String, Map<String, Integer>> result = new HashMap<>();
+        for (String type : types) {
+            result.put(type, new HashMap<String, Integer>());
+        }
+        boolean found = false;
+        for (int typeId = 1; typeId <= MAX_TYPE_ID; typeId++) {
+            int base = (APP_PACKAGE_ID << 24) | (typeId << 16);
+            String typeName;
+            try {
+                typeName = res.getResourceTypeName(base);
+            } catch (Resources.NotFoundException e) {
+                break;
+            }
+            found = true;
+            Map<String, Integer> names = result.get(typeName);
+            if (names == null) continue;
+            for (int entry = 0; entry <= 0xffff; entry++) {
+                try {
+                    names.put(res.getResourceEntryName(base | entry), base | entry);
+                } catch (Resources.NotFoundException e) {
+                    break;
+                }
+            }
+        }
+        if (!found) {
+            throw new IllegalStateException("no resource type found in package 0x7f");
+        }
+        for (Map.Entry<String, Map<String, Integer>> entry : result.entrySet()) {
+            entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * @return 建立索引的skin.apk的路径
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return assets下的所有文件路径,如 Public/line_horizontal.png,扫描失败时为null
+     */
+    public Set<String> getAssets() {
+        return assets;
+    }
+
+    /**
+     * @param type 资源类型,目前只索引了 color 和 drawable
+     * @return skin中定义的该类型的资源名称,未索引的类型或者扫描失败时为null
+     */
+    public Set<String> getResourceNames(String type) {
+        Map<String, Integer> ids = getResourceIds(type);
+        return ids == null ? null : ids.keySet();
+    }
+
+    /**
+     * @param type 资源类型,目前只索引了 color 和 drawable
+     * @return skin中定义的该类型的资源名称和资源id,未索引的类型或者扫描失败时为null
+     */
+    Map<String, Integer> getResourceIds(String type) {
+        return resources == null ? null : resources.get(type);
+    }
+
+    /**
+     * skin中是否可能包含assets下的该文件,索引不可用时返回true
+     *
+     * @param assetPath assets下的文件路径
+     */
+    public boolean mayContainAsset(String assetPath) {
+        return assets == null || assets.contains(assetPath);
+    }
+
+    /**
+     * skin中是否可能包含该资源,未索引的类型或索引不可用时返回true
+     *
+     * @param type 资源类型
+     * @param name 资源名称
+     */
+    public boolean mayContainResource(String type, String name) {
+        Set<String> names = getResourceNames(type);
+        return names == null || names.contains(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SkinIndex{path=").append(path)
+                .append(", assets=").append(assets == null ? "unknown" : String.valueOf(assets.size()));
+        if (resources == null) {
+            sb.append(", resources=unknown");
+        } else {
+            for (Map.Entry<String, Map<String, Integer>> entry : resources.entrySet()) {
+                sb.append(", ").append(entry.getKey()).append('=').append(entry.getValue().size());
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
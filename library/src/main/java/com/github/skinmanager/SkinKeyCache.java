@@ -0,0 +1,52 @@
+package com.github.skinmanager;
+
+import android.graphics.Bitmap;
+
+/**
+ * {@link SkinKeyTable}中的句柄在某个skin中对应的资源,skin加载完成时创建.
+ * 通过句柄获取资源时直接按下标取出颜色和位图缓存的key,不需要拼接和散列名称
+ */
+final class SkinKeyCache {
+
+    final SkinKeyTable table;
+    final SkinSource source;
+    final int[] colors;
+    /**
+     * assets下图片的路径,为 文件夹/文件全称
+     */
+    final String[] paths;
+    private final BitmapCache.Key[] lowKeys;
+    private final BitmapCache.Key[] highKeys;
+
+    SkinKeyCache(SkinKeyTable table, SkinSource source, SkinManager manager) {
+        this.table = table;
+        this.source = source;
+        String skinPath = source == null ? null : source.path;
+        colors = new int[table.colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = manager.getColor(table.colors[i]);
+        }
+        int count = table.files.length;
+        paths = new String[count];
+        lowKeys = new BitmapCache.Key[count];
+        highKeys = new BitmapCache.Key[count];
+        for (int i = 0; i < count; i++) {
+            paths[i] = table.folders[i] + "/" + table.files[i];
+            lowKeys[i] = new BitmapCache.Key(skinPath, table.folders[i], table.files[i],
+                    SkinManager.LDOptions.ops.inPreferredConfig);
+            highKeys[i] = new BitmapCache.Key(skinPath, table.folders[i], table.files[i],
+                    SkinManager.HDOptions.ops.inPreferredConfig);
+        }
+    }
+
+    /**
+     * 获取句柄对应的图片在指定位图配置下的缓存key,常用的两种配置不需要创建对象
+     */
+    BitmapCache.Key getKey(int handle, Bitmap.Config config) {
+        BitmapCache.Key key = lowKeys[handle];
+        if (key.config == config) return key;
+        key = highKeys[handle];
+        if (key.config == config) return key;
+        return new BitmapCache.Key(key.path, key.folder, key.name, config);
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.skinmanager;
+
+/**
+ * skin中资源名称和int句柄的对应表,由skin-keys.gradle根据skin工程生成,
+ * 句柄就是资源名称在数组中的位置.
+ * 通过{@link SkinManager#setSkinKeys(SkinKeyTable)}设置后,可以使用句柄获取资源,不需要再拼接和查找名称
+ */
+public final class SkinKeyTable {
+
+    /**
+     * assets下图片所在的文件夹名称
+     */
+    final String[] folders;
+    /**
+     * assets下图片的文件全称,带后缀名
+     */
+    final String[] files;
+    /**
+     * res/values/colors.xml中颜色的名称
+     */
+    final String[] colors;
+
+    /**
+     * @param folders 图片所在的文件夹名称,和files一一对应
+     * @param files   图片的文件全称
+     * @param colors  颜色名称
+     */
+    public SkinKeyTable(String[] folders, String[] files, String[] colors) {
+        if (folders.length != files.length) {
+            throw new IllegalArgumentException("folders and files must have the same length");
+        }
+        this.folders = folders.clone();
+        this.files = files.clone();
+        this.colors = colors.clone();
+    }
+
+    public int getDrawableCount() {
+        return files.length;
+    }
+
+    public int getColorCount() {
+        return colors.length;
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.skinmanager;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.annotations.Nullable;
+
+/**
+ * 在布局文件中声明控件使用的skin资源,加载布局创建控件时读取属性并记录,不需要再在代码中逐个调用set方法.
+ * <pre>
+ * &lt;ImageView
+ *     xmlns:skin="http://schemas.android.com/apk/res-auto"
+ *     skin:skinBackground="Example/assetsDrawable"
+ *     skin:skinTextColor="colorText" /&gt;
+ * </pre>
+ * 支持的属性见res/values/attrs.xml中的SkinLayout.
+ * 没有声明skin属性的控件交给系统创建,图片已经缓存时在创建控件时直接设置,否则和set方法一样放入队列中加载
+ */
+public class SkinLayoutFactory implements LayoutInflater.Factory2 {
+
+    public static final String NAMESPACE = "http://schemas.android.com/apk/res-auto";
+
+    /**
+     * 布局中不带包名的控件依次尝试的包名,和系统的加载顺序一致
+     */
+    private static final String[] PREFIXES = {
+            "android.widget.",
+            "android.webkit.",
+            "android.app.",
+            "android.view."
+    };
+
+    private final SkinManager manager;
+    private final LayoutInflater.Factory2 delegate;
+    /**
+     * 最近一次复制的LayoutInflater和它使用的context,同一个context中的控件不需要每次都复制
+     */
+    private Context clonedContext;
+    private LayoutInflater clonedInflater;
+
+    /**
+     * @param delegate 原来的Factory2,先由它创建控件,为null时直接创建
+     */
+    public SkinLayoutFactory(@Nullable LayoutInflater.Factory2 delegate) {
+        this.manager = SkinManager.getInstance();
+        this.delegate = delegate;
+    }
+
+    /**
+     * 为Activity的LayoutInflater设置SkinLayoutFactory,需要在{@link Activity#setContentView(int)}之前调用.
+     * Activity本身作为原来的Factory2,&lt;fragment&gt;标签仍然由Activity创建
+     *
+     * @return 是否设置成功, LayoutInflater已经设置过Factory时无法再设置
+     */
+    public static boolean install(Activity activity) {
+        LayoutInflater inflater = activity.getLayoutInflater();
+        if (inflater.getFactory() != null) return false;
+        inflater.setFactory2(new SkinLayoutFactory(activity));
+        return true;
+    }
+
+    @Override
+    public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+        View view = delegate == null ? null : delegate.onCreateView(parent, name, context, attrs);
+        List<SkinBinding> list = readBindings(context, attrs);
+        if (list == null) return view;
+        if (view == null) {
+            view = createView(name, context, attrs);
+            if (view == null) return null;
+        }
+        if (!(view instanceof TextView)) {
+            //文字颜色和字体只对TextView有效
+            for (int i = list.size() - 1; i >= 0; i--) {
+                if (list.get(i).slot() != SkinBinding.SLOT_BACKGROUND) {
+                    list.remove(i);
+                }
+            }
+        }
+        manager.bind(view, list);
+        return view;
+    }
+
+    @Override
+    public View onCreateView(String name, Context context, AttributeSet attrs) {
+        return onCreateView(null, name, context, attrs);
+    }
+
+    /**
+     * 通过SkinLayout中编译后的属性id读取
+     *
+     * @return 布局中声明的skin资源, 没有声明时为null
+     */
+    @Nullable
+    private List<SkinBinding> readBindings(Context context, AttributeSet attrs) {
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SkinLayout);
+        try {
+            List<SkinBinding> list = null;
+            String value = a.getString(R.styleable.SkinLayout_skinBackground);
+            if (value == null) {
+                value = a.getString(R.styleable.SkinLayout_skinHDBackground);
+                if (value != null) {
+                    list = add(list, createBackground(value, true));
+                }
+            } else {
+                list = add(list, createBackground(value, false));
+            }
+            value = a.getString(R.styleable.SkinLayout_skinResBackground);
+            if (value != null) {
+                list = add(list, new SkinBinding.ResBackground(value));
+            }
+            value = a.getString(R.styleable.SkinLayout_skinBackgroundColor);
+            if (value != null) {
+                list = add(list, new SkinBinding.BackgroundColor(value));
+            }
+            value = a.getString(R.styleable.SkinLayout_skinTextColor);
+            if (value != null) {
+                list = add(list, new SkinBinding.NamedTextColor(value));
+            }
+            value = a.getString(R.styleable.SkinLayout_skinTypeface);
+            if (value != null) {
+                list = add(list, new SkinBinding.Font(value));
+            }
+            return list;
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * @param value 图片名称,可以在前面加上 文件夹名称/ ,不带文件夹时使用默认文件夹
+     */
+    private SkinBinding createBackground(String value, boolean hd) {
+        int slash = value.lastIndexOf('/');
+        if (slash < 0) {
+            return new SkinBinding.Background(value, manager.getDefaultFolder(), hd);
+        }
+        return new SkinBinding.Background(value.substring(slash + 1), value.substring(0, slash), hd);
+    }
+
+    private static List<SkinBinding> add(List<SkinBinding> list, SkinBinding binding) {
+        if (list == null) {
+            list = new ArrayList<>(2);
+        }
+        list.add(binding);
+        return list;
+    }
+
+    /**
+     * 使用context创建控件,控件在带有android:theme的布局中时context是带有主题的ContextThemeWrapper.
+     * API 29以前{@link LayoutInflater#createView(String, String, AttributeSet)}使用LayoutInflater自己的context,
+     * 所以context不是LayoutInflater自己的context时需要复制一个使用该context的LayoutInflater
+     */
+    @Nullable
+    private View createView(String name, Context context, AttributeSet attrs) {
+        LayoutInflater inflater = getInflater(context);
+        if (name.indexOf('.') >= 0) {
+            try {
+                return inflater.createView(name, null, attrs);
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+        for (String prefix : PREFIXES) {
+            try {
+                return inflater.createView(name, prefix, attrs);
+            } catch (ClassNotFoundException e) {
+                //尝试下一个包名
+            }
+        }
+        return null;
+    }
+
+    private synchronized LayoutInflater getInflater(Context context) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        if (inflater.getContext() == context) return inflater;
+        if (clonedContext != context) {
+            clonedInflater = inflater.cloneInContext(context);
+            clonedContext = context;
+        }
+        return clonedInflater;
+    }
+}
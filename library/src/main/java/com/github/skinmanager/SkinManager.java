@@ -10,7 +10,6 @@ import android.graphics.Typeface;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.NinePatchDrawable;
 import android.graphics.drawable.StateListDrawable;
 import android.text.TextUtils;
 import android.util.Pair;
@@ -25,9 +24,16 @@ import com.github.skinmanager.utils.SelectorUtils;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
@@ -38,7 +44,6 @@ import io.reactivex.annotations.NonNull;
 import io.reactivex.annotations.Nullable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Consumer;
-import io.reactivex.functions.Function;
 import io.reactivex.plugins.RxJavaPlugins;
 import io.reactivex.schedulers.Schedulers;
 
@@ -49,58 +54,87 @@ import io.reactivex.schedulers.Schedulers;
 public class SkinManager implements Skin {
 
     /**
-     * 主题色,图片和一些标题栏会使用此颜色,有的时候大部分文字都会使用该颜色(比如金龙的应用中心)
-     * 使用时需要保证SkinManager初始化完成
+     * 切换skin后发送的广播,其他进程收到后会切换到新的skin
+     */
+    public static final String ACTION_SKIN_CHANGED = "com.github.skinmanager.action.SKIN_CHANGED";
+    /**
+     * {@link #ACTION_SKIN_CHANGED}广播中新的skin.apk的绝对路径
+     */
+    public static final String EXTRA_SKIN_PATH = "com.github.skinmanager.extra.SKIN_PATH";
+    /**
+     * 发送和接收{@link #ACTION_SKIN_CHANGED}广播需要的权限,保护级别为signature,只有签名相同的应用可以切换skin
+     */
+    public static final String PERMISSION_SKIN_CHANGED = "com.github.skinmanager.permission.SKIN_CHANGED";
+
+    /**
+     * 没有获取到颜色时返回的颜色,调试时为红色便于发现
+     */
+    private static final int MISSING_COLOR = BuildConfig.DEBUG ? Color.RED : -1;
+    private static final Pair<Boolean, Integer> MISSING_COLOR_RESULT = new Pair<>(false, MISSING_COLOR);
+    private static final long COLOR_NOT_FOUND = 0;
+    private static final long COLOR_FOUND = 1L << 32;
+    /**
+     * 旧版本的颜色字段,保留一个版本,在skin加载完成时从{@link Palette}更新.
+     * 字段在异步线程中写入,其他线程可能读到旧的值,需要同时使用多个颜色时使用{@link #getPalette()}
+     *
+     * @deprecated 使用{@link #getColorPrimary()}
      */
+    @Deprecated
     public int colorPrimary;
     /**
-     * 主题色亮一些的颜色
+     * @deprecated 使用{@link #getColorPrimaryLight()}
      */
+    @Deprecated
     public int colorPrimaryLight;
     /**
-     * 主要的文字颜色,一般为接近白色,大部分正文的文字使用该颜色
-     * 使用时需要保证SkinManager初始化完成
+     * @deprecated 使用{@link #getColorText()}
      */
+    @Deprecated
     public int colorText;
     /**
-     * 比主要的文字颜色还要亮一些的颜色
+     * @deprecated 使用{@link #getColorTextLight()}
      */
+    @Deprecated
     public int colorTextLight;
     /**
-     * 比主要的文字颜色要黯淡一些的颜色,一般为灰白色
-     * 使用时需要保证SkinManager初始化完成
+     * @deprecated 使用{@link #getColorTextDim()}
      */
+    @Deprecated
     public int colorTextDim;
     /**
-     * 黯淡很多的主要的文字颜色,一般为灰色
-     * 使用时需要保证SkinManager初始化完成
+     * @deprecated 使用{@link #getColorTextDark()}
      */
+    @Deprecated
     public int colorTextDark;
     /**
-     * 主要的背景色
-     * 使用时需要保证SkinManager初始化完成
+     * @deprecated 使用{@link #getColorBackground()}
      */
+    @Deprecated
     public int colorBackground;
     /**
-     * 亮一些的背景色
-     * 使用时需要保证SkinManager初始化完成
+     * @deprecated 使用{@link #getColorBackgroundLight()}
      */
+    @Deprecated
     public int colorBackgroundLight;
+    /**
+     * skin中常用颜色的快照,skin加载完成或者切换后整体替换
+     */
+    private volatile Palette palette = Palette.EMPTY;
     /**
      * 横向的线
      * 使用时需要保证SkinManager初始化完成
      */
-    private Drawable lineHorizontal;
+    private volatile Drawable lineHorizontal;
     /**
      * 竖向的线
      * 使用时需要保证SkinManager初始化完成
      */
-    private Drawable lineVertical;
+    private volatile Drawable lineVertical;
     /**
      * 对话框的背景,为res/drawable下的.9图片,会自动拉伸
      * 使用时需要保证SkinManager初始化完成
      */
-    private Drawable dialogBackground;
+    private volatile Drawable dialogBackground;
     /**
      * 很多方法不指定foldName时获取资源的默认文件夹(apk的assets下的文件目录名称).
      * 默认为 {@link SkinManager#GLOBAL_FOLDER}
@@ -120,23 +154,66 @@ public class SkinManager implements Skin {
      */
     private BitmapFactory.Options defaultOps = LDOptions.ops;
 
-    private Resources currentRes;
-    private Resources defaultRes;
-    private boolean initComplete = false;
-
-    private HashMap<View, String> assets;
-    private HashMap<View, String> assetsHD;
-    private HashMap<View, String> drawableMap;
-    private HashMap<View, Drawable> comMap;
-    private ArrayList<TextView> colorPrimaryList;
-    private ArrayList<TextView> colorTextList;
-    private ArrayList<TextView> colorTextLightList;
-    private ArrayList<TextView> colorTextDimList;
-    private ArrayList<TextView> colorTextDarkList;
-    private ArrayList<TextView> colorStateList;
-    private HashMap<TextView, String> typefaceMap;
-    private HashMap<String, Typeface> typefaceCacheMap;
-    private HashMap<TextView, String> compoundDrawablesMap;
+    /**
+     * 当前使用的skin,切换skin时在新的skin加载完成后整体替换
+     */
+    private volatile SkinSource current;
+    /**
+     * 默认的skin {@link #DEFAULT_PATH},当前skin中没有的资源从这里获取
+     */
+    private volatile SkinSource fallback;
+    private volatile boolean initComplete = false;
+    /**
+     * 正在加载或者已经加载的skin路径
+     */
+    private String targetPath;
+    private boolean loading = false;
+    private final ArrayList<OnResourceCompleteListener> loadListeners = new ArrayList<>();
+    /**
+     * 已经加载完成的skin路径,只在主线程中使用
+     */
+    private String loadedPath;
+    private final SkinChangeNotifier changeNotifier = new SkinChangeNotifier(this);
+    /**
+     * 检测到其他进程切换了skin时,是否通过杀掉进程重启的方式切换,默认在当前进程中直接切换
+     */
+    private boolean restartOnSkinChange = false;
+    /**
+     * 获取资源的计数和解码耗时
+     */
+    private final SkinMetrics metrics = new SkinMetrics();
+    /**
+     * assets下图片的位图缓存,重新加载skin时清空
+     */
+    private final BitmapCache bitmapCache = new BitmapCache(BitmapCache.DEFAULT_MAX_BYTES, metrics);
+    /**
+     * 异步加载资源并在下一帧统一设置到控件上的队列
+     */
+    private final SkinApplyQueue applyQueue = new SkinApplyQueue(new ViewRequests(this));
+    /**
+     * 资源名称和句柄的对应表,以及在当前skin中对应的资源
+     */
+    private volatile SkinKeyTable skinKeys;
+    private volatile SkinKeyCache keyCache;
+    /**
+     * 切换skin后旧的skin的位图的复用池,为null时不复用
+     */
+    private volatile BitmapPool bitmapPool;
+    /**
+     * 是否直接从apk文件中解码没有压缩的图片
+     */
+    private volatile boolean directAssetReadEnabled = true;
+    private volatile boolean atlasEnabled;
+
+    /**
+     * 所有设置过skin资源的控件和资源,对控件是弱引用.
+     * skin加载完成前设置的会在加载完成后统一进行设置,切换skin后会全部重新设置
+     */
+    private final BindingRegistry bindings = new BindingRegistry();
+    /**
+     * skin中字体的缓存,重新加载skin时清空
+     */
+    private final TypefaceCache typefaceCache = new TypefaceCache();
 
     /**
      * skin的资源加载完毕的回调
@@ -145,6 +222,36 @@ public class SkinManager implements Skin {
         void onResourceComplete();
     }
 
+    /**
+     * 主线程中的skin操作超过时间预算的监听,在主线程中回调
+     */
+    public interface OnSlowOperationListener {
+        /**
+         * @param operation     操作名称,和Trace中的区段名称相同,如 Skin:getResDrawable
+         * @param durationNanos 操作的耗时,纳秒
+         */
+        void onSlowOperation(String operation, long durationNanos);
+    }
+
+    /**
+     * skin切换的监听,都在主线程中回调
+     */
+    public interface OnSkinChangeListener {
+        /**
+         * 检测到其他进程切换了skin,开始加载新的skin前调用
+         *
+         * @param path 新的skin.apk的绝对路径
+         */
+        void onSkinChange(String path);
+
+        /**
+         * 新的skin加载完成,并且所有设置过skin资源的控件都已经重新设置后调用
+         *
+         * @param path 新的skin.apk的绝对路径
+         */
+        void onSkinChangeComplete(String path);
+    }
+
     private SkinManager() {
     }
 
@@ -193,236 +300,398 @@ public class SkinManager implements Skin {
      */
     public synchronized void initResource(final Context context, final String path,
                                           final OnResourceCompleteListener listener) {
-        RxJavaPlugins.setErrorHandler(new Consumer<Throwable>() {
-            @Override
-            public void accept(Throwable throwable) {
-                throwable.printStackTrace();
-            }
-        });
-        if (currentRes == null) {
-            Observable.create(new ObservableOnSubscribe<Object>() {
+        long traceStart = SkinTrace.begin(SkinTrace.INIT_RESOURCE);
+        try {
+            RxJavaPlugins.setErrorHandler(new Consumer<Throwable>() {
                 @Override
-                public void subscribe(ObservableEmitter<Object> emitter) throws Exception {
-                    if (TextUtils.isEmpty(path)) {
-                        currentRes = getResource(context, DEFAULT_PATH);
-                    } else {
-                        currentRes = getResource(context, path);
-                        if (!DEFAULT_PATH.equals(path) && defaultRes == null) {
-                            defaultRes = getResource(context, DEFAULT_PATH);
-                        }
+                public void accept(Throwable throwable) {
+                    throwable.printStackTrace();
+                }
+            });
+            if (current == null) {
+                loadResource(context, path, listener);
+            } else {
+                listener.onResourceComplete();
+            }
+        } finally {
+            SkinTrace.end(SkinTrace.INIT_RESOURCE, traceStart);
+        }
+    }
+
+    /**
+     * 切换skin,在异步线程中加载新的skin,加载完成前仍然使用之前的skin.
+     * 加载完成后替换为新的skin,并在当前进程中将所有设置过skin资源的控件重新设置一次,不需要重启进程
+     *
+     * @param context  上下文
+     * @param path     新的skin.apk的绝对路径,为空时默认为 {@link SkinManager#DEFAULT_PATH}
+     * @param listener 切换完成后的回调
+     */
+    public synchronized void reloadResource(final Context context, final String path,
+                                            final OnResourceCompleteListener listener) {
+        loadResource(context, path, listener);
+    }
+
+    private void loadResource(final Context context, String path, OnResourceCompleteListener listener) {
+        final String skinPath = TextUtils.isEmpty(path) ? DEFAULT_PATH : path;
+        if (listener != null && !loadListeners.contains(listener)) {
+            loadListeners.add(listener);
+        }
+        if (loading && skinPath.equals(targetPath)) {
+            return;
+        }
+        targetPath = skinPath;
+        loading = true;
+        Observable.create(new ObservableOnSubscribe<List<Bitmap>>() {
+            @Override
+            public void subscribe(ObservableEmitter<List<Bitmap>> emitter) throws Exception {
+                Resources res = getResource(context, skinPath);
+                if (!DEFAULT_PATH.equals(skinPath) && fallback == null) {
+                    Resources defaultRes = getResource(context, DEFAULT_PATH);
+                    if (defaultRes != null) {
+                        fallback = new SkinSource(DEFAULT_PATH, defaultRes, metrics);
                     }
-                    initCom();
-                    emitter.onNext(new Object());
-                    emitter.onComplete();
                 }
-            })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Object>() {
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
+                SkinSource source = res == null ? null : new SkinSource(skinPath, res, metrics);
+                SkinSource retiredSource;
+                synchronized (SkinManager.this) {
+                    if (!skinPath.equals(targetPath)) {
+                        //加载过程中又切换到了其他skin,丢弃这次加载的结果
+                        emitter.onComplete();
+                        return;
+                    }
+                    retiredSource = current;
+                    current = source;
+                }
+                if (retiredSource != null && retiredSource.storedAssets != null) {
+                    retiredSource.storedAssets.close();
+                }
+                //新的skin替换完成前获取的图片和字体仍然是旧的skin的,替换后再清空缓存
+                List<Bitmap> retired = bitmapCache.drain();
+                clearTypefaceCache();
+                initCom();
+                emitter.onNext(retired);
+                emitter.onComplete();
+            }
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Observer<List<Bitmap>>() {
+                    Disposable d;
+
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        this.d = d;
+                    }
 
-                        @Override
-                        public void onNext(Object o) {
-                            initComplete = true;
-                            setCacheView();
-                            listener.onResourceComplete();
-                        }
+                    @Override
+                    public void onNext(List<Bitmap> retired) {
+                        onResourceLoaded(skinPath, retired);
+                    }
 
-                        @Override
-                        public void onError(Throwable e) {
-                            e.printStackTrace();
+                    @Override
+                    public void onError(Throwable e) {
+                        e.printStackTrace();
+                        synchronized (SkinManager.this) {
+                            if (skinPath.equals(targetPath)) {
+                                loading = false;
+                                loadListeners.clear();
+                            }
                         }
+                    }
 
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
+                    @Override
+                    public void onComplete() {
+                        d.dispose();
+                    }
+                });
+    }
+
+    /**
+     * skin加载完成,在主线程中调用
+     */
+    private void onResourceLoaded(final String skinPath, final List<Bitmap> retired) {
+        ArrayList<OnResourceCompleteListener> listeners;
+        synchronized (this) {
+            if (!skinPath.equals(targetPath)) {
+                //加载过程中又切换到了其他skin,等待其他skin加载完成
+                return;
+            }
+            loading = false;
+            listeners = new ArrayList<>(loadListeners);
+            loadListeners.clear();
+        }
+        initComplete = true;
+        applyQueue.invalidate();
+        final BitmapPool pool = bitmapPool;
+        //只有注册表中的控件显示的位图会被重新设置替换,其他位图可能仍然被使用者持有
+        final Set<Bitmap> replaced = pool == null || retired.isEmpty() ? null : getDisplayedBitmaps();
+        setCacheView();
+        if (replaced != null && !replaced.isEmpty()) {
+            //重新设置的资源都显示到控件上后,旧的skin的位图才不再被显示,这时再放入复用池
+            applyQueue.runWhenIdle(new Runnable() {
+                @Override
+                public void run() {
+                    for (Bitmap bitmap : retired) {
+                        if (replaced.contains(bitmap)) {
+                            pool.put(bitmap);
                         }
-                    });
-        } else {
+                    }
+                }
+            });
+        }
+        String previous = loadedPath;
+        loadedPath = skinPath;
+        if (previous != null) {
+            //重新设置的资源都显示到控件上后才算切换完成
+            applyQueue.runWhenIdle(new Runnable() {
+                @Override
+                public void run() {
+                    if (skinPath.equals(loadedPath)) {
+                        changeNotifier.dispatchSkinChangeComplete(skinPath);
+                    }
+                }
+            });
+        }
+        for (OnResourceCompleteListener listener : listeners) {
             listener.onResourceComplete();
         }
     }
 
-    public synchronized void reloadResource(final Context context, final String path,
-                                            final OnResourceCompleteListener listener) {
-        initComplete = false;
-        currentRes = null;
-        initResource(context, path, listener);
+    /**
+     * 切换skin,并通知其他进程切换到同一个skin
+     *
+     * @param context  上下文
+     * @param path     新的skin.apk的绝对路径,为空时默认为 {@link SkinManager#DEFAULT_PATH}
+     * @param listener 当前进程切换完成后的回调
+     */
+    public void changeSkin(Context context, String path, OnResourceCompleteListener listener) {
+        reloadResource(context, path, listener);
+        changeNotifier.send(context, path);
+    }
+
+    /**
+     * 添加skin切换的监听,需要在主线程调用.
+     * 有监听时才会接收其他进程切换skin的通知,不需要时需要调用{@link #unregisterOnSkinChangeListener}移除
+     */
+    public void registerOnSkinChangeListener(Context context, OnSkinChangeListener listener) {
+        changeNotifier.add(context, listener);
+    }
+
+    /**
+     * 移除skin切换的监听,需要在主线程调用
+     */
+    public void unregisterOnSkinChangeListener(OnSkinChangeListener listener) {
+        changeNotifier.remove(listener);
+    }
+
+    /**
+     * 当前使用的skin的路径,正在切换skin时为切换后的skin的路径
+     */
+    public synchronized String getSkinPath() {
+        return targetPath;
+    }
+
+    /**
+     * 是否正在使用或者正在切换到指定的skin
+     *
+     * @param path skin.apk的绝对路径,为空时默认为 {@link SkinManager#DEFAULT_PATH}
+     */
+    synchronized boolean isSkinPath(String path) {
+        return (TextUtils.isEmpty(path) ? DEFAULT_PATH : path).equals(targetPath);
+    }
+
+    /**
+     * 设置检测到其他进程切换了skin时的处理方式
+     *
+     * @param restart true为杀掉进程重启的方式切换,false为在当前进程中直接切换,默认为false
+     */
+    public void setRestartOnSkinChange(boolean restart) {
+        restartOnSkinChange = restart;
+    }
+
+    public boolean isRestartOnSkinChange() {
+        return restartOnSkinChange;
     }
 
     @SuppressWarnings("JavaReflectionMemberAccess")
     private Resources getResource(Context context, String path) throws Exception {
-        if (!TextUtils.isEmpty(path) && new File(path).exists()) {
-            AssetManager assetManager = AssetManager.class.newInstance();//这里需要用反射new,不然获取不到res
-            Method addAssetPath = assetManager.getClass().getMethod("addAssetPath", String.class);
-            addAssetPath.invoke(assetManager, path);
-            Resources superRes = context.getResources();
-            return new Resources(assetManager, superRes.getDisplayMetrics(), superRes.getConfiguration());
+        long traceStart = SkinTrace.begin(SkinTrace.GET_RESOURCE);
+        try {
+            if (!TextUtils.isEmpty(path) && new File(path).exists()) {
+                AssetManager assetManager = AssetManager.class.newInstance();//这里需要用反射new,不然获取不到res
+                Method addAssetPath = assetManager.getClass().getMethod("addAssetPath", String.class);
+                addAssetPath.invoke(assetManager, path);
+                Resources superRes = context.getResources();
+                return new Resources(assetManager, superRes.getDisplayMetrics(), superRes.getConfiguration());
+            }
+            return null;
+        } finally {
+            SkinTrace.end(SkinTrace.GET_RESOURCE, traceStart);
         }
-        return null;
     }
 
     /**
      * 初始化获取一些常用资源文件
      */
     private void initCom() {
-        colorPrimary = getColor("colorPrimary");
-        colorPrimaryLight = getColor("colorPrimaryLight");
-        colorText = getColor("colorText");
-        colorTextLight = getColor("colorTextLight");
-        colorTextDim = getColor("colorTextDim");
-        colorTextDark = getColor("colorTextDark");
-        colorBackground = getColor("colorBackground");
-        colorBackgroundLight = getColor("colorBackgroundLight");
-        lineHorizontal = getDrawable("line_horizontal", GLOBAL_FOLDER);
-        lineVertical = getDrawable("line_vertical", GLOBAL_FOLDER);
-        dialogBackground = getResDrawable("dialog_background");
+        long traceStart = SkinTrace.begin(SkinTrace.INIT_COM);
+        try {
+            Palette palette = Palette.load(this);
+            this.palette = palette;
+            colorPrimary = palette.get(Palette.PRIMARY);
+            colorPrimaryLight = palette.get(Palette.PRIMARY_LIGHT);
+            colorText = palette.get(Palette.TEXT);
+            colorTextLight = palette.get(Palette.TEXT_LIGHT);
+            colorTextDim = palette.get(Palette.TEXT_DIM);
+            colorTextDark = palette.get(Palette.TEXT_DARK);
+            colorBackground = palette.get(Palette.BACKGROUND);
+            colorBackgroundLight = palette.get(Palette.BACKGROUND_LIGHT);
+            SkinKeyTable table = skinKeys;
+            keyCache = table == null ? null : new SkinKeyCache(table, current, this);
+            lineHorizontal = getDrawable("line_horizontal", GLOBAL_FOLDER);
+            lineVertical = getDrawable("line_vertical", GLOBAL_FOLDER);
+            dialogBackground = getResDrawable("dialog_background");
+        } finally {
+            SkinTrace.end(SkinTrace.INIT_COM, traceStart);
+        }
     }
 
-    private void setCacheView() {
-        if (assets != null && !assets.isEmpty()) {
-            for (View view : assets.keySet()) {
-                String path = assets.get(view);
-                if (path != null && path.contains("|")) {  //状态选择器
-                    int splitter = path.indexOf("|");
-                    if (path.contains(":")) {
-                        int fold = path.indexOf(":");
-                        if (view instanceof ProgressBar) {
-                            setProgressBarDrawable((ProgressBar) view, path.substring(0, splitter),
-                                    path.substring(splitter + 1, fold), path.substring(fold + 1));
-                        } else {
-                            setSelector(view, path.substring(0, splitter),
-                                    path.substring(splitter + 1, fold), path.substring(fold + 1));
-                        }
-                    } else {
-                        if (view instanceof ProgressBar) {
-                            setProgressBarDrawable((ProgressBar) view, path.substring(0, splitter),
-                                    path.substring(splitter + 1));
-                        } else {
-                            setSelector(view, path.substring(0, splitter), path.substring(splitter + 1));
-                        }
-                    }
-                } else {
-                    if (path != null && path.contains(":")) {
-                        int fold = path.indexOf(":");
-                        setBackground(view, path.substring(0, fold), path.substring(fold + 1));
-                    } else {
-                        setBackground(view, path);
+    /**
+     * 获取skin中常用颜色的快照,需要同时使用多个颜色时使用同一个快照,不会读到切换skin过程中新旧skin混合的颜色
+     * 使用时需要保证SkinManager初始化完成
+     */
+    @NonNull
+    public Palette getPalette() {
+        return palette;
+    }
+
+    /**
+     * 主题色,图片和一些标题栏会使用此颜色,有的时候大部分文字都会使用该颜色(比如金龙的应用中心)
+     * 使用时需要保证SkinManager初始化完成
+     */
+    public int getColorPrimary() {
+        return palette.get(Palette.PRIMARY);
+    }
+
+    /**
+     * 主题色亮一些的颜色
+     */
+    public int getColorPrimaryLight() {
+        return palette.get(Palette.PRIMARY_LIGHT);
+    }
+
+    /**
+     * 主要的文字颜色,一般为接近白色,大部分正文的文字使用该颜色
+     * 使用时需要保证SkinManager初始化完成
+     */
+    public int getColorText() {
+        return palette.get(Palette.TEXT);
+    }
+
+    /**
+     * 比主要的文字颜色还要亮一些的颜色
+     */
+    public int getColorTextLight() {
+        return palette.get(Palette.TEXT_LIGHT);
+    }
+
+    /**
+     * 比主要的文字颜色要黯淡一些的颜色,一般为灰白色
+     * 使用时需要保证SkinManager初始化完成
+     */
+    public int getColorTextDim() {
+        return palette.get(Palette.TEXT_DIM);
+    }
+
+    /**
+     * 黯淡很多的主要的文字颜色,一般为灰色
+     * 使用时需要保证SkinManager初始化完成
+     */
+    public int getColorTextDark() {
+        return palette.get(Palette.TEXT_DARK);
+    }
+
+    /**
+     * 主要的背景色
+     * 使用时需要保证SkinManager初始化完成
+     */
+    public int getColorBackground() {
+        return palette.get(Palette.BACKGROUND);
+    }
+
+    /**
+     * 亮一些的背景色
+     * 使用时需要保证SkinManager初始化完成
+     */
+    public int getColorBackgroundLight() {
+        return palette.get(Palette.BACKGROUND_LIGHT);
+    }
+
+    /**
+     * @return 注册表中的控件的背景和TextView四周的图片正在显示的位图
+     */
+    private Set<Bitmap> getDisplayedBitmaps() {
+        final Set<Bitmap> displayed = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+        bindings.forEach(new BindingRegistry.Visitor() {
+            @Override
+            public void visit(View view, SkinBinding binding) {
+                addBitmap(displayed, view.getBackground());
+                if (view instanceof TextView) {
+                    for (Drawable drawable : ((TextView) view).getCompoundDrawables()) {
+                        addBitmap(displayed, drawable);
                     }
                 }
             }
-            assets.clear();
-        }
-        if (assetsHD != null && !assetsHD.isEmpty()) {
-            for (View view : assetsHD.keySet()) {
-                String path = assetsHD.get(view);
-                if (path != null && path.contains(":")) {
-                    int fold = path.indexOf(":");
-                    setHDBackground(view, path.substring(0, fold), path.substring(fold + 1));
-                } else {
-                    setHDBackground(view, path);
-                }
-            }
-            assetsHD.clear();
-        }
-        if (drawableMap != null && !drawableMap.isEmpty()) {
-            for (View view : drawableMap.keySet()) {
-                setResBackground(view, drawableMap.get(view));
-            }
-            drawableMap.clear();
-        }
-        if (comMap != null && !comMap.isEmpty()) {
-            for (View view : comMap.keySet()) {
-                Drawable drawable = comMap.get(view);
-                if (drawable instanceof BitmapDrawable) {
-                    view.setBackground(new BitmapDrawable(null, ((BitmapDrawable) drawable).getBitmap()));
-                } else if (drawable instanceof NinePatchDrawable) {
-                    view.setBackground(getResDrawable("dialog_background"));
-                }
-            }
-            comMap.clear();
-        }
-        if (colorPrimaryList != null && !colorPrimaryList.isEmpty()) {
-            for (TextView textView : colorPrimaryList) {
-                textView.setTextColor(colorPrimary);
-            }
-            colorPrimaryList.clear();
-        }
-        if (colorTextList != null && !colorTextList.isEmpty()) {
-            for (TextView textView : colorTextList) {
-                textView.setTextColor(colorText);
-            }
-            colorTextList.clear();
-        }
-        if (colorTextLightList != null && !colorTextLightList.isEmpty()) {
-            for (TextView textView : colorTextLightList) {
-                textView.setTextColor(colorTextLight);
-            }
-            colorTextLightList.clear();
-        }
-        if (colorTextDimList != null && !colorTextDimList.isEmpty()) {
-            for (TextView textView : colorTextDimList) {
-                textView.setTextColor(colorTextDim);
-            }
-            colorTextDimList.clear();
-        }
-        if (colorTextDarkList != null && !colorTextDarkList.isEmpty()) {
-            for (TextView textView : colorTextDarkList) {
-                textView.setTextColor(colorTextDark);
-            }
-            colorTextDarkList.clear();
-        }
-        if (colorStateList != null && !colorStateList.isEmpty()) {
-            for (TextView textView : colorStateList) {
-                textView.setTextColor(SelectorUtils.createColorState(colorText, colorPrimary));
-            }
-            colorStateList.clear();
+        });
+        return displayed;
+    }
+
+    private static void addBitmap(Set<Bitmap> bitmaps, Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null) bitmaps.add(bitmap);
         }
-        if (typefaceMap != null && !typefaceMap.isEmpty()) {
-            for (TextView tv : typefaceMap.keySet()) {
-                setTypeface(tv, typefaceMap.get(tv));
-            }
-            typefaceMap.clear();
-        }
-        if (compoundDrawablesMap != null && !compoundDrawablesMap.isEmpty()) {
-            for (TextView textView : compoundDrawablesMap.keySet()) {
-                String value = compoundDrawablesMap.get(textView);
-                if (value != null) {
-                    String[] drawables = value.split("\\|");
-                    setCompoundDrawables(textView, drawables[0], drawables[1], drawables[2],
-                            drawables[3], drawables[4]);
+    }
+
+    private void setCacheView() {
+        long traceStart = SkinTrace.begin(SkinTrace.SET_CACHE_VIEW);
+        try {
+            bindings.forEach(new BindingRegistry.Visitor() {
+                @Override
+                public void visit(View view, SkinBinding binding) {
+                    metrics.increment(SkinMetrics.BINDINGS_REPLAYED);
+                    binding.apply(SkinManager.this, view);
                 }
-            }
-            compoundDrawablesMap.clear();
+            });
+        } finally {
+            SkinTrace.end(SkinTrace.SET_CACHE_VIEW, traceStart);
         }
     }
 
     /**
-     * 获取指定资源id
+     * 设置主线程中skin操作的耗时监测,用于查找由于获取skin资源导致的掉帧.
+     * skin的耗时操作都有Trace区段,不设置时也可以通过Perfetto/systrace查看
      *
-     * @param type 资源类型 drawable，style, color, string
-     * @param name 资源名词
-     * @return 资源id
+     * @param budgetMillis 时间预算,主线程中的操作超过该时间时回调
+     * @param listener     为null时关闭监测
      */
-    private int getResourceId(String type, String name) {
-        int identifier = 0;
-        if (currentRes != null) {
-            identifier = currentRes.getIdentifier(name, type, skinPackage);
-            if (identifier == 0) {
-                for (String compatiblePackage : compatiblePackages) {
-                    identifier = currentRes.getIdentifier(name, type, compatiblePackage);
-                    if (identifier != 0) {
-                        break;
-                    }
-                }
-            }
-        }
-        return identifier;
+    public void setSlowOperationWatchdog(long budgetMillis, @Nullable OnSlowOperationListener listener) {
+        SkinTrace.setWatchdog(TimeUnit.MILLISECONDS.toNanos(budgetMillis), listener);
+    }
+
+    /**
+     * 获取资源的计数和解码耗时,可以一直开启,通过{@link SkinMetrics#snapshot()}获取统计结果
+     */
+    @NonNull
+    public SkinMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取设置过skin资源的控件中,由于控件被回收而丢弃的记录数量,用于诊断
+     */
+    public long getDroppedBindingCount() {
+        return bindings.getDroppedCount();
     }
 
     /**
@@ -432,20 +701,38 @@ public class SkinManager implements Skin {
      * @param name 资源名词
      * @return 资源id
      */
-    private int getDefaultResId(String type, String name) {
-        int identifier = 0;
-        if (defaultRes != null) {
-            identifier = defaultRes.getIdentifier(name, type, skinPackage);
-            if (identifier == 0) {
-                for (String compatiblePackage : compatiblePackages) {
-                    identifier = defaultRes.getIdentifier(name, type, compatiblePackage);
-                    if (identifier != 0) {
-                        break;
-                    }
-                }
-            }
-        }
-        return identifier;
+    private int getResourceId(SkinSource source, String type, String name) {
+        if (source == null || !mayContainResource(source.index, type, name)) return 0;
+        return source.ids.getIdentifier(type, name, skinPackage, compatiblePackages);
+    }
+
+    /**
+     * 索引中只有skin包名下的资源,有兼容的包名时不能通过索引判断
+     */
+    private boolean mayContainResource(SkinIndex index, String type, String name) {
+        return index == null || compatiblePackages.length > 0 || index.mayContainResource(type, name);
+    }
+
+    /**
+     * 获取当前skin的资源索引,可以用于诊断skin中包含哪些资源
+     *
+     * @return 当前skin的资源索引, skin未加载完成时为null
+     */
+    @Nullable
+    public SkinIndex getSkinIndex() {
+        SkinSource source = current;
+        return source == null ? null : source.index;
+    }
+
+    /**
+     * 获取默认skin的资源索引
+     *
+     * @return 默认skin {@link #DEFAULT_PATH} 的资源索引, 当前skin就是默认skin或者未加载完成时为null
+     */
+    @Nullable
+    public SkinIndex getDefaultSkinIndex() {
+        SkinSource source = fallback;
+        return source == null ? null : source.index;
     }
 
     /**
@@ -454,6 +741,58 @@ public class SkinManager implements Skin {
      */
     public static void setSkinPackage(String packageName) {
         skinPackage = packageName;
+        getInstance().clearResourceIdCache();
+    }
+
+    private void clearResourceIdCache() {
+        SkinSource source = current;
+        if (source != null) source.ids.clear();
+        source = fallback;
+        if (source != null) source.ids.clear();
+    }
+
+    /**
+     * 设置切换skin后是否复用旧的skin的位图.
+     * 开启后切换skin并重新设置所有控件后,旧的skin的位图会放入复用池,之后解码图片时通过inBitmap复用,
+     * 减少切换skin时的内存分配和GC.
+     * 只有通过set系列方法设置到控件上并且切换时被重新设置替换的位图才会复用,图集的位图不会复用.
+     * 通过getDrawable获取的同一张图片和set系列方法设置的图片共享位图,开启后不能在切换skin后继续使用
+     *
+     * @param enabled 默认为false
+     */
+    public void setBitmapReuseEnabled(boolean enabled) {
+        if (enabled) {
+            if (bitmapPool == null) {
+                bitmapPool = new BitmapPool(BitmapCache.DEFAULT_MAX_BYTES / 2);
+            }
+        } else {
+            BitmapPool pool = bitmapPool;
+            bitmapPool = null;
+            if (pool != null) pool.clear();
+        }
+    }
+
+    /**
+     * 设置是否直接从skin.apk文件中读取assets下的图片.
+     * 开启时,在apk中没有压缩存储的图片会通过文件描述符从apk中的对应位置直接解码,
+     * 减少AssetManager的流在Java层的复制;压缩存储的图片仍然通过AssetManager读取.
+     * skin打包时需要通过aaptOptions.noCompress保持图片不压缩,参考SkinExample
+     *
+     * @param enabled 默认为true
+     */
+    public void setDirectAssetReadEnabled(boolean enabled) {
+        directAssetReadEnabled = enabled;
+    }
+
+    /**
+     * 设置是否从skin打包时生成的图集中获取小图片,参考SkinExample中的atlas.gradle.
+     * 开启后图集中的图片共享图集的一个位图,只需要解码一次,
+     * 但是getDrawable系列方法返回的不再是{@link BitmapDrawable},不能转换为BitmapDrawable或者获取其中的位图
+     *
+     * @param enabled 默认为false
+     */
+    public void setAtlasEnabled(boolean enabled) {
+        atlasEnabled = enabled;
     }
 
     /**
@@ -495,28 +834,387 @@ public class SkinManager implements Skin {
     }
 
     /**
-     * 获取assets下的图片
+     * 获取assets下的图片,解码后的位图会进行缓存,相同的图片和位图配置再次获取时直接使用缓存的位图,
+     * 多个线程同时获取同一张图片时只会解码一次
      *
      * @param name    图片全称
      * @param folder  图片文件夹名称
      * @param options 图片选项,主要是位图{@link Bitmap.Config}影响图片的质量（颜色深度）以及显示透明/半透明颜色的能力
-     * @return 图片Drawable对象
+     * @return 图片Drawable对象, 每次返回的都是新的Drawable对象, 但可能共享同一个位图,
+     * 开启{@link #setAtlasEnabled(boolean)}后图集中的图片不是BitmapDrawable
      */
     @NonNull
     public Drawable getDrawable(String name, String folder, BitmapFactory.Options options) {
-        Drawable drawable = new ColorDrawable(BuildConfig.DEBUG ? Color.WHITE : Color.TRANSPARENT);
+        SkinSource source = current;
+        Drawable region = getAtlasDrawable(source, folder + "/" + name, options, false);
+        if (region != null) {
+            return region;
+        }
+        BitmapCache.Key key = new BitmapCache.Key(source == null ? null : source.path, folder, name,
+                options.inPreferredConfig);
+        return getDrawable(source, key, folder + "/" + name, options);
+    }
+
+    /**
+     * 获取已经缓存的assets下的PNG图片,没有缓存时不进行解码
+     *
+     * @return 图片, 没有缓存或者skin还没有加载完成时为null
+     */
+    @Nullable
+    Drawable getCachedDrawable(String name, String folder, boolean hd) {
+        SkinSource source = current;
+        if (!initComplete || source == null) return null;
+        BitmapFactory.Options options = hd ? HDOptions.ops : defaultOps;
+        Drawable region = getAtlasDrawable(source, folder + "/" + name + ".png", options, true);
+        if (region != null) return region;
+        Bitmap bitmap = bitmapCache.get(new BitmapCache.Key(source.path, folder, name + ".png",
+                options.inPreferredConfig));
+        return bitmap == null ? null : new BitmapDrawable(null, bitmap);
+    }
+
+    /**
+     * skin打包时把图片合并到了图集中时,从图集的位图中截取该图片,同一个图集中的图片共享一个位图.
+     * skin中没有该图片时从默认的skin的图集中获取.
+     * 图集中记录的是原始尺寸下的位置,options带有缩放时不使用图集
+     *
+     * @param path       assets下的图片路径
+     * @param cachedOnly 为true时图集没有缓存时不进行解码
+     * @return 没有开启图集, 图片不在图集中, options带有缩放或者图集获取不到时为null
+     */
+    @Nullable
+    private Drawable getAtlasDrawable(SkinSource source, String path, final BitmapFactory.Options options,
+                                      boolean cachedOnly) {
+        if (!atlasEnabled) return null;
+        if (options.inSampleSize > 1 || options.inDensity != 0 || options.inTargetDensity != 0) return null;
+        final SkinSource atlasSource = mayContainAsset(source, path) ? source : fallback;
+        final SkinAtlas.Region region = atlasSource == null ? null : atlasSource.atlas.get(path);
+        if (region == null) return null;
+        BitmapCache.Key key = new BitmapCache.Key(atlasSource.path, region.folder, SkinAtlas.IMAGE,
+                options.inPreferredConfig);
+        Bitmap atlas;
+        if (cachedOnly) {
+            atlas = bitmapCache.get(key);
+        } else {
+            //图集中的位置只对应同一个skin的图集,不能从默认的skin中解码
+            atlas = bitmapCache.getOrDecode(key, new Callable<Bitmap>() {
+                @Override
+                public Bitmap call() {
+                    return decodeReusing(atlasSource, region.folder + "/" + SkinAtlas.IMAGE, options);
+                }
+            });
+        }
+        if (atlas == null) return null;
+        if (atlasSource != source) {
+            metrics.increment(SkinMetrics.FALLBACK_HITS);
+        }
+        return new AtlasDrawable(atlas, region.bounds);
+    }
+
+    /**
+     * 取消控件以及所有子控件还没有完成的加载任务,需要在主线程调用.
+     * 控件从窗口移除时会自动取消,界面销毁但控件没有添加到窗口过时可以调用该方法
+     *
+     * @param root 控件或者布局的根控件
+     */
+    public void cancelRequests(View root) {
+        applyQueue.cancel(root);
+    }
+
+    /**
+     * 按照注册表中的记录重新设置控件的资源,控件加载任务被取消后重新添加到窗口时调用
+     */
+    void replay(View view) {
+        SkinBinding[] slots = bindings.get(view);
+        if (slots == null || !initComplete) return;
+        for (SkinBinding binding : slots) {
+            if (binding != null) {
+                binding.apply(this, view);
+            }
+        }
+    }
+
+    /**
+     * 设置加载skin资源的线程调度,之后提交的加载任务和预加载都在新的调度中执行
+     */
+    public void setScheduler(@NonNull SkinScheduler scheduler) {
+        applyQueue.setScheduler(scheduler);
+    }
+
+    /**
+     * @return 当前加载skin资源的线程调度, 可以获取线程数量和等待的任务数量
+     */
+    @NonNull
+    public SkinScheduler getScheduler() {
+        return applyQueue.getScheduler();
+    }
+
+    /**
+     * 在后台并行解码图片并放入位图缓存,之后获取或者设置这些图片时可以直接从缓存中获取.
+     * 可以在打开界面之前调用,需要在skin加载完成后调用,切换skin后还没有开始的加载不再进行.
+     * 预加载的优先级低于正在显示的控件,高于没有显示的控件
+     *
+     * @param assets 需要预加载的图片
+     * @return 预加载任务, 可以查询进度和取消
+     */
+    @NonNull
+    public PrefetchHandle prefetch(Collection<AssetKey> assets) {
+        final PrefetchHandle handle = new PrefetchHandle(assets.size(), applyQueue.getScheduler());
+        final SkinSource source = current;
+        for (final AssetKey asset : assets) {
+            handle.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (handle.isCancelled()) {
+                        handle.onSkipped();
+                        return;
+                    }
+                    handle.onLoaded(source != null && source == current && prefetch(source, asset));
+                }
+            });
+        }
+        return handle;
+    }
+
+    private boolean prefetch(final SkinSource source, AssetKey asset) {
+        final BitmapFactory.Options options = asset.hd ? HDOptions.ops : defaultOps;
+        final String path = asset.folder + "/" + asset.fileName;
+        if (getAtlasDrawable(source, path, options, false) != null) {
+            return true;
+        }
+        BitmapCache.Key key = new BitmapCache.Key(source.path, asset.folder, asset.fileName,
+                options.inPreferredConfig);
+        return bitmapCache.getOrDecode(key, new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() {
+                return decodeAsset(source, path, options);
+            }
+        }) != null;
+    }
+
+    /**
+     * 按照需要显示的尺寸获取assets下的图片,图片比需要的尺寸大时会在解码时缩小,
+     * 解码后的位图在两个方向上都不小于需要的尺寸.不同的缩放比例分别进行缓存.
+     * 图片在图集中时直接从图集中截取,图集中的图片都很小,不再按尺寸缩小
+     *
+     * @param name      图片全称
+     * @param folder    图片文件夹名称
+     * @param options   图片选项,不会被修改
+     * @param reqWidth  需要显示的宽度,小于等于0时按原始尺寸解码
+     * @param reqHeight 需要显示的高度,小于等于0时按原始尺寸解码
+     * @return 图片Drawable对象, 每次返回的都是新的Drawable对象, 但可能共享同一个位图,
+     * 开启{@link #setAtlasEnabled(boolean)}后图集中的图片不是BitmapDrawable
+     */
+    @NonNull
+    public Drawable getDrawable(String name, String folder, BitmapFactory.Options options,
+                                int reqWidth, int reqHeight) {
+        SkinSource source = current;
+        String path = folder + "/" + name;
+        Drawable region = getAtlasDrawable(source, path, options, false);
+        if (region != null) {
+            return region;
+        }
+        int[] size = reqWidth > 0 && reqHeight > 0 ? getAssetSize(source, path) : null;
+        if (size == null) {
+            return getDrawable(name, folder, options);
+        }
+        BitmapFactory.Options sized = createSizedOptions(options, size[0], size[1], reqWidth, reqHeight);
+        BitmapCache.Key key = new BitmapCache.Key(source == null ? null : source.path, folder, name,
+                options.inPreferredConfig, sized.inSampleSize, sized.inDensity, sized.inTargetDensity);
+        return getDrawable(source, key, path, sized);
+    }
+
+    @NonNull
+    private Drawable getDrawable(final SkinSource source, BitmapCache.Key key, final String path,
+                                 final BitmapFactory.Options options) {
+        Bitmap bitmap = bitmapCache.getOrDecode(key, new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() {
+                return decodeAsset(source, path, options);
+            }
+        });
+        if (bitmap == null) {
+            return new ColorDrawable(BuildConfig.DEBUG ? Color.WHITE : Color.TRANSPARENT);
+        }
+        return new BitmapDrawable(null, bitmap);
+    }
+
+    /**
+     * 获取assets下图片的原始尺寸,和{@link #decodeAsset(SkinSource, String, BitmapFactory.Options)}
+     * 一样,skin中没有时从默认的skin中获取
+     *
+     * @return 宽和高, 都获取不到时为null
+     */
+    @Nullable
+    private int[] getAssetSize(SkinSource source, String path) {
+        int[] size = getAssetSizeFrom(source, path);
+        if (size == null) {
+            size = getAssetSizeFrom(fallback, path);
+        }
+        return size;
+    }
+
+    @Nullable
+    private int[] getAssetSizeFrom(SkinSource source, String path) {
+        if (!mayContainAsset(source, path)) return null;
+        int[] size = source.assetSizes.get(path);
+        if (size == null) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            decodeFile(source, path, options);
+            size = new int[]{options.outWidth, options.outHeight};
+            source.assetSizes.put(path, size);
+        }
+        return size[0] > 0 && size[1] > 0 ? size : null;
+    }
+
+    /**
+     * 复制图片选项,{@link HDOptions}和{@link LDOptions}是共用的,不能直接修改
+     */
+    private static BitmapFactory.Options copyOptions(BitmapFactory.Options options) {
+        BitmapFactory.Options copy = new BitmapFactory.Options();
+        copy.inPreferredConfig = options.inPreferredConfig;
+        copy.inSampleSize = options.inSampleSize;
+        copy.inPurgeable = options.inPurgeable;
+        copy.inInputShareable = options.inInputShareable;
+        copy.inMutable = options.inMutable;
+        copy.inDensity = options.inDensity;
+        copy.inTargetDensity = options.inTargetDensity;
+        copy.inScaled = options.inScaled;
+        copy.inBitmap = options.inBitmap;
+        return copy;
+    }
+
+    /**
+     * 计算按需要的尺寸解码时的图片选项,先用2的幂次的inSampleSize缩小,
+     * 仍然比需要的尺寸大时再通过inDensity和inTargetDensity缩放到刚好不小于需要的尺寸
+     */
+    private static BitmapFactory.Options createSizedOptions(BitmapFactory.Options options, int width, int height,
+                                                            int reqWidth, int reqHeight) {
+        BitmapFactory.Options sized = copyOptions(options);
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        sized.inSampleSize = sampleSize;
+        int sampledWidth = width / sampleSize;
+        int sampledHeight = height / sampleSize;
+        //按缩放比例较小的一边计算,保证两个方向上都不小于需要的尺寸
+        if ((long) reqWidth * sampledHeight >= (long) reqHeight * sampledWidth) {
+            if (sampledWidth > reqWidth) {
+                sized.inDensity = sampledWidth;
+                sized.inTargetDensity = reqWidth;
+            }
+        } else if (sampledHeight > reqHeight) {
+            sized.inDensity = sampledHeight;
+            sized.inTargetDensity = reqHeight;
+        }
+        sized.inScaled = sized.inDensity != 0;
+        return sized;
+    }
+
+    /**
+     * 从skin的assets中解码图片,skin中没有时从默认的skin中解码
+     *
+     * @param source  当前的skin
+     * @param path    assets下图片的路径
+     * @param options 图片选项
+     * @return 解码后的位图, 都获取不到时为null
+     */
+    @Nullable
+    private Bitmap decodeAsset(SkinSource source, String path, BitmapFactory.Options options) {
+        Bitmap bitmap = null;
+        if (mayContainAsset(source, path)) {
+            bitmap = decodeReusing(source, path, options);
+        }
+        SkinSource defaultSource = fallback;
+        if (bitmap == null && mayContainAsset(defaultSource, path)) {
+            source = defaultSource;
+            bitmap = decodeReusing(source, path, options);
+            if (bitmap != null) {
+                metrics.increment(SkinMetrics.FALLBACK_HITS);
+            }
+        }
+        if (bitmap != null && options.inDensity != 0) {
+            //通过密度缩放解码后位图的密度会被设置为inTargetDensity,还原为和不缩放时相同的密度
+            bitmap.setDensity(source.res.getDisplayMetrics().densityDpi);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 不经过位图缓存,和获取图片时相同的方式从当前的skin中解码,基准测试中使用
+     */
+    @Nullable
+    Bitmap decodeUncached(String path, BitmapFactory.Options options) {
+        return decodeAsset(current, path, options);
+    }
+
+    /**
+     * 开启了位图复用时,从复用池中取出足够大的位图作为inBitmap进行解码,解码出的位图都是可修改的,之后也可以被复用
+     */
+    @Nullable
+    private Bitmap decodeReusing(SkinSource source, String path, BitmapFactory.Options options) {
+        BitmapPool pool = bitmapPool;
+        if (pool == null) {
+            return decodeFile(source, path, options);
+        }
+        BitmapFactory.Options reuse = copyOptions(options);
+        reuse.inMutable = true;
+        reuse.inPurgeable = false;
+        int[] size = getAssetSizeFrom(source, path);
+        if (size != null) {
+            reuse.inBitmap = pool.get(BitmapPool.getByteCount(size[0], size[1], reuse));
+        }
+        Bitmap bitmap = decodeFile(source, path, reuse);
+        if (bitmap == null && reuse.inBitmap != null) {
+            //估算的大小不准确或者格式不支持复用时解码失败,不复用再解码一次
+            pool.put(reuse.inBitmap);
+            reuse.inBitmap = null;
+            bitmap = decodeFile(source, path, reuse);
+        }
+        return bitmap;
+    }
+
+    private static boolean mayContainAsset(SkinSource source, String path) {
+        return source != null && source.index.mayContainAsset(path);
+    }
 
+    /**
+     * 解码skin中assets下的文件,开启直接读取并且文件在apk中没有压缩时,直接从apk文件中的对应位置解码,
+     * 否则通过AssetManager打开的流解码
+     */
+    @Nullable
+    private Bitmap decodeFile(SkinSource source, String path, BitmapFactory.Options options) {
+        StoredAssets stored = directAssetReadEnabled ? source.storedAssets : null;
+        RandomAccessFile file = null;
         InputStream is = null;
         try {
-            is = currentRes.getAssets().open(folder + "/" + name);
-            drawable = new BitmapDrawable(null, BitmapFactory.decodeStream(is, null, options));
-        } catch (Exception ignored) {
+            metrics.increment(SkinMetrics.ASSET_OPENS);
+            if (stored != null) {
+                file = stored.acquire(path);
+            }
+            if (file == null) {
+                is = source.res.getAssets().open(path);
+            }
+            if (options.inJustDecodeBounds) {
+                return decode(file, is, options);
+            }
+            long start = SkinTrace.begin(SkinTrace.DECODE);
+            Bitmap bitmap;
             try {
-                is = defaultRes.getAssets().open(folder + "/" + name);
-                drawable = new BitmapDrawable(null, BitmapFactory.decodeStream(is, null, options));
-            } catch (Exception ignored2) {
+                bitmap = decode(file, is, options);
+            } finally {
+                SkinTrace.end(SkinTrace.DECODE, start);
             }
+            metrics.recordDecode(options.inPreferredConfig, System.nanoTime() - start,
+                    bitmap == null ? 0 : bitmap.getAllocationByteCount());
+            return bitmap;
+        } catch (Exception ignored) {
+            return null;
         } finally {
+            if (file != null) {
+                stored.release(file);
+            }
             if (is != null) {
                 try {
                     is.close();
@@ -524,7 +1222,22 @@ public class SkinManager implements Skin {
                 }
             }
         }
-        return drawable;
+    }
+
+    /**
+     * 从apk文件中直接读取时,通过文件描述符从当前位置解码,不经过Java层的缓冲区复制
+     */
+    private static Bitmap decode(RandomAccessFile file, InputStream is, BitmapFactory.Options options)
+            throws IOException {
+        if (file != null) {
+            if (options.inPurgeable) {
+                //purgeable的位图被回收后会从文件的开头重新解码,从apk中间的位置读取时不能使用
+                options = copyOptions(options);
+                options.inPurgeable = false;
+            }
+            return BitmapFactory.decodeFileDescriptor(file.getFD(), null, options);
+        }
+        return BitmapFactory.decodeStream(is, null, options);
     }
 
     /**
@@ -570,6 +1283,32 @@ public class SkinManager implements Skin {
         return getHDDrawable(name, defaultFolder);
     }
 
+    /**
+     * 按照需要显示的尺寸获取assets下指定文件夹下的png图片,图片比需要的尺寸大时会在解码时缩小
+     *
+     * @param name      xxx.png的xxx部分,不带后缀名
+     * @param folder    文件夹名称
+     * @param reqWidth  需要显示的宽度
+     * @param reqHeight 需要显示的高度
+     */
+    @NonNull
+    public Drawable getDrawable(String name, String folder, int reqWidth, int reqHeight) {
+        return getDrawable(name + ".png", folder, defaultOps, reqWidth, reqHeight);
+    }
+
+    /**
+     * 按照需要显示的尺寸获取高清的assets下指定文件夹下的png图片,图片比需要的尺寸大时会在解码时缩小
+     *
+     * @param name      xxx.png的xxx部分,不带后缀名
+     * @param folder    文件夹名称
+     * @param reqWidth  需要显示的宽度
+     * @param reqHeight 需要显示的高度
+     */
+    @NonNull
+    public Drawable getHDDrawable(String name, String folder, int reqWidth, int reqHeight) {
+        return getDrawable(name + ".png", folder, HDOptions.ops, reqWidth, reqHeight);
+    }
+
     /**
      * 获取assets下指定文件夹下的指定名称的JPG图片
      *
@@ -612,30 +1351,44 @@ public class SkinManager implements Skin {
      * 从skin加载字体
      *
      * @param name 字体名称
-     * @return 在skin的assets/Typeface目录下
+     * @return 在skin的assets/Typeface目录下, skin中没有该字体时为null
      */
     @Nullable
-    public synchronized Typeface getTypeface(String name) {
-        Typeface typeface = null;
-        if (typefaceCacheMap == null) {
-            typefaceCacheMap = new HashMap<>();
-        } else {
-            typeface = typefaceCacheMap.get(name);
-        }
-        if (typeface == null) {
-            try {
-                typeface = Typeface.createFromAsset(currentRes.getAssets(), "Typeface/" + name);
-            } catch (Exception ignored) {
-            }
-            if (typeface == null) {
-                try {
-                    typeface = Typeface.createFromAsset(defaultRes.getAssets(), "Typeface/" + name);
-                } catch (Exception ignored) {
+    public Typeface getTypeface(String name) {
+        long traceStart = SkinTrace.begin(SkinTrace.GET_TYPEFACE);
+        try {
+            final String path = "Typeface/" + name;
+            return typefaceCache.getOrLoad(name, new Callable<Typeface>() {
+                @Override
+                public Typeface call() {
+                    Typeface typeface = null;
+                    SkinSource source = current;
+                    if (mayContainAsset(source, path)) {
+                        try {
+                            metrics.increment(SkinMetrics.TYPEFACE_LOADS);
+                            typeface = Typeface.createFromAsset(source.res.getAssets(), path);
+                        } catch (Exception ignored) {
+                        }
+                    }
+                    source = fallback;
+                    if (typeface == null && mayContainAsset(source, path)) {
+                        try {
+                            metrics.increment(SkinMetrics.TYPEFACE_LOADS);
+                            typeface = Typeface.createFromAsset(source.res.getAssets(), path);
+                            metrics.increment(SkinMetrics.FALLBACK_HITS);
+                        } catch (Exception ignored) {
+                        }
+                    }
+                    return typeface;
                 }
-            }
-            typefaceCacheMap.put(name, typeface);
+            });
+        } finally {
+            SkinTrace.end(SkinTrace.GET_TYPEFACE, traceStart);
         }
-        return typeface;
+    }
+
+    private void clearTypefaceCache() {
+        typefaceCache.clear();
     }
 
     /**
@@ -645,17 +1398,25 @@ public class SkinManager implements Skin {
      */
     @NonNull
     public Drawable getResDrawable(String name) {
-        Drawable drawable = new ColorDrawable(BuildConfig.DEBUG ? Color.WHITE : Color.TRANSPARENT);
-        int drawableId = getResourceId("drawable", name);
-        if (drawableId != 0) {
-            drawable = currentRes.getDrawable(drawableId);
-        } else {
-            drawableId = getDefaultResId("drawable", name);
+        long traceStart = SkinTrace.begin(SkinTrace.GET_RES_DRAWABLE);
+        try {
+            Drawable drawable = new ColorDrawable(BuildConfig.DEBUG ? Color.WHITE : Color.TRANSPARENT);
+            SkinSource source = current;
+            SkinSource defaultSource = fallback;
+            int drawableId = getResourceId(source, "drawable", name);
             if (drawableId != 0) {
-                drawable = defaultRes.getDrawable(drawableId);
+                drawable = source.res.getDrawable(drawableId);
+            } else {
+                drawableId = getResourceId(defaultSource, "drawable", name);
+                if (drawableId != 0) {
+                    drawable = defaultSource.res.getDrawable(drawableId);
+                    metrics.increment(SkinMetrics.FALLBACK_HITS);
+                }
             }
+            return drawable;
+        } finally {
+            SkinTrace.end(SkinTrace.GET_RES_DRAWABLE, traceStart);
         }
-        return drawable;
     }
 
     /**
@@ -665,61 +1426,151 @@ public class SkinManager implements Skin {
      * @return 颜色的值
      */
     public int getColor(String name) {
-        int color = BuildConfig.DEBUG ? Color.RED : -1;
-        int colorId = getResourceId("color", name);
-        if (colorId != 0) {
-            color = currentRes.getColor(colorId);
-        } else {
-            colorId = getDefaultResId("color", name);
-            if (colorId != 0) {
-                color = defaultRes.getColor(colorId);
+        long result = findColor(current, name);
+        if (result == COLOR_NOT_FOUND) {
+            result = findColor(fallback, name);
+            if (result != COLOR_NOT_FOUND) {
+                metrics.increment(SkinMetrics.FALLBACK_HITS);
             }
         }
-        return color;
+        return result == COLOR_NOT_FOUND ? MISSING_COLOR : (int) result;
     }
 
     /**
      * -1 是白色,有时候需要判断是否获取成功
      */
-    public Pair<Boolean, Integer> getColorWithResult(String name) {
-        int color = BuildConfig.DEBUG ? Color.RED : -1;
-        boolean result = false;
-        int colorId = getResourceId("color", name);
-        if (colorId != 0) {
-            result = true;
-            color = currentRes.getColor(colorId);
-        } else {
-            colorId = getDefaultResId("color", name);
-            if (colorId != 0) {
-                result = true;
-                color = defaultRes.getColor(colorId);
-            }
-        }
-        return new Pair<>(result, color);
+    public Pair<Boolean, Integer> getColorWithResult(String name) {
+        Pair<Boolean, Integer> result = findColorResult(current, name);
+        if (result == null) {
+            result = findColorResult(fallback, name);
+            if (result != null) {
+                metrics.increment(SkinMetrics.FALLBACK_HITS);
+            }
+        }
+        return result == null ? MISSING_COLOR_RESULT : result;
+    }
+
+    public int getColor(String name, String compatible) {
+        SkinSource source = current;
+        SkinSource defaultSource = fallback;
+        long result = findColor(source, name);
+        if (result == COLOR_NOT_FOUND) {
+            result = findColor(defaultSource, name);
+        }
+        if (result == COLOR_NOT_FOUND) {
+            result = findColor(source, compatible);
+        }
+        if (result == COLOR_NOT_FOUND) {
+            result = findColor(defaultSource, compatible);
+        }
+        return result == COLOR_NOT_FOUND ? MISSING_COLOR : (int) result;
+    }
+
+    /**
+     * 可以使用颜色表时从颜色表中查找,不需要再通过Resources
+     */
+    @Nullable
+    private ColorTable getColorTable(SkinSource source) {
+        ColorTable table = source.colors;
+        return table != null && compatiblePackages.length == 0 && table.isPackage(skinPackage) ? table : null;
+    }
+
+    /**
+     * 在指定的skin中查找颜色,为了不创建对象,结果中高32位为1表示找到,低32位为颜色的值
+     *
+     * @return 颜色, 没有找到时为 {@link #COLOR_NOT_FOUND}
+     */
+    private long findColor(SkinSource source, String name) {
+        if (source == null || name == null) return COLOR_NOT_FOUND;
+        ColorTable table = getColorTable(source);
+        if (table != null) {
+            int slot = table.indexOf(name);
+            return slot < 0 ? COLOR_NOT_FOUND : COLOR_FOUND | (table.colorAt(slot) & 0xffffffffL);
+        }
+        int colorId = getResourceId(source, "color", name);
+        return colorId == 0 ? COLOR_NOT_FOUND : COLOR_FOUND | (source.res.getColor(colorId) & 0xffffffffL);
+    }
+
+    @Nullable
+    private Pair<Boolean, Integer> findColorResult(SkinSource source, String name) {
+        if (source == null || name == null) return null;
+        ColorTable table = getColorTable(source);
+        if (table != null) {
+            int slot = table.indexOf(name);
+            return slot < 0 ? null : table.resultAt(slot);
+        }
+        int colorId = getResourceId(source, "color", name);
+        return colorId == 0 ? null : new Pair<>(true, source.res.getColor(colorId));
+    }
+
+    /**
+     * 设置资源名称和句柄的对应表,之后可以使用生成的句柄获取资源,
+     * 如{@link #getColor(int)},{@link #getDrawable(int)}
+     *
+     * @param table 由skin-keys.gradle根据skin工程生成的类中的TABLE
+     */
+    public void setSkinKeys(SkinKeyTable table) {
+        skinKeys = table;
+        keyCache = table == null || current == null ? null : new SkinKeyCache(table, current, this);
+    }
+
+    /**
+     * @return 当前skin中句柄对应的资源, skin未加载完成时为null
+     */
+    @Nullable
+    private SkinKeyCache getKeyCache() {
+        if (skinKeys == null) {
+            throw new IllegalStateException("SkinKeyTable not set, call setSkinKeys first");
+        }
+        return keyCache;
+    }
+
+    /**
+     * 通过句柄获取颜色
+     *
+     * @param colorKey 生成的句柄类中color下的句柄
+     * @return 颜色的值
+     */
+    public int getColor(int colorKey) {
+        SkinKeyCache cache = getKeyCache();
+        return cache == null ? MISSING_COLOR : cache.colors[colorKey];
+    }
+
+    /**
+     * 通过句柄获取assets下的图片,使用默认的图片配置
+     *
+     * @param drawableKey 生成的句柄类中drawable下的句柄
+     * @return 开启{@link #setAtlasEnabled(boolean)}后图集中的图片不是BitmapDrawable
+     */
+    @NonNull
+    public Drawable getDrawable(int drawableKey) {
+        return getDrawable(drawableKey, defaultOps);
+    }
+
+    /**
+     * 通过句柄获取高清的assets下的图片
+     *
+     * @param drawableKey 生成的句柄类中drawable下的句柄
+     * @return 开启{@link #setAtlasEnabled(boolean)}后图集中的图片不是BitmapDrawable
+     */
+    @NonNull
+    public Drawable getHDDrawable(int drawableKey) {
+        return getDrawable(drawableKey, HDOptions.ops);
     }
 
-    public int getColor(String name, String compatible) {
-        int color = BuildConfig.DEBUG ? Color.RED : -1;
-        int colorId = getResourceId("color", name);
-        if (colorId != 0) {
-            color = currentRes.getColor(colorId);
-        } else {
-            colorId = getDefaultResId("color", name);
-            if (colorId != 0) {
-                color = defaultRes.getColor(colorId);
-            } else {
-                colorId = getResourceId("color", compatible);
-                if (colorId != 0) {
-                    color = currentRes.getColor(colorId);
-                } else {
-                    colorId = getDefaultResId("color", compatible);
-                    if (colorId != 0) {
-                        color = defaultRes.getColor(colorId);
-                    }
-                }
-            }
+    @NonNull
+    private Drawable getDrawable(int drawableKey, BitmapFactory.Options options) {
+        SkinKeyCache cache = getKeyCache();
+        if (cache == null) {
+            SkinKeyTable table = skinKeys;
+            return getDrawable(table.files[drawableKey], table.folders[drawableKey], options);
+        }
+        Drawable region = getAtlasDrawable(cache.source, cache.paths[drawableKey], options, false);
+        if (region != null) {
+            return region;
         }
-        return color;
+        return getDrawable(cache.source, cache.getKey(drawableKey, options.inPreferredConfig),
+                cache.paths[drawableKey], options);
     }
 
     /**
@@ -754,44 +1605,20 @@ public class SkinManager implements Skin {
      * @param name       图片名称
      * @param folderName 图片所在文件夹名称
      */
-    public void setBackground(final View view, String name, final String folderName) {
+    public void setBackground(final View view, final String name, final String folderName) {
+        bindings.put(view, new SkinBinding.Background(name, folderName, false));
         if (initComplete) {
-            Observable.just(name)
-                    .map(new Function<String, Drawable>() {
-                        @Override
-                        public Drawable apply(String s) {
-                            return getDrawable(s, folderName);
-                        }
-                    })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable>() {
-
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
-
-                        @Override
-                        public void onNext(Drawable drawable) {
-                            view.setBackground(drawable);
-                        }
-
-                        @Override
-                        public void onError(Throwable e) {
-
-                        }
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
+                @Override
+                Drawable load() {
+                    return getDrawable(name, folderName);
+                }
 
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (assets == null) assets = new HashMap<>();
-            assets.put(view, name + ":" + folderName);
+                @Override
+                void apply(Drawable drawable) {
+                    view.setBackground(drawable);
+                }
+            }, view);
         }
     }
 
@@ -812,48 +1639,24 @@ public class SkinManager implements Skin {
      * @param folderName 图片文件夹
      * @param views      需要设置背景的控件
      */
-    public void setBackground(String name, final String folderName, final View... views) {
+    public void setBackground(final String name, final String folderName, final View... views) {
+        for (View view : views) {
+            bindings.put(view, new SkinBinding.Background(name, folderName, false));
+        }
         if (initComplete) {
-            Observable.just(name)
-                    .map(new Function<String, Drawable>() {
-                        @Override
-                        public Drawable apply(String s) {
-                            return getDrawable(s, folderName);
-                        }
-                    })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable>() {
-
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
-
-                        @Override
-                        public void onNext(Drawable drawable) {
-                            for (View view : views) {
-                                view.setBackground(drawable);
-                            }
-                        }
-
-                        @Override
-                        public void onError(Throwable e) {
-
-                        }
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
+                @Override
+                Drawable load() {
+                    return getDrawable(name, folderName);
+                }
 
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (assets == null) assets = new HashMap<>();
-            for (View view : views) {
-                assets.put(view, name + ":" + folderName);
-            }
+                @Override
+                void apply(Drawable drawable) {
+                    for (View view : views) {
+                        view.setBackground(drawable);
+                    }
+                }
+            }, views);
         }
     }
 
@@ -869,44 +1672,20 @@ public class SkinManager implements Skin {
      * @param name       图片名称
      * @param folderName 图片所在文件夹名称
      */
-    public void setHDBackground(final View view, String name, final String folderName) {
+    public void setHDBackground(final View view, final String name, final String folderName) {
+        bindings.put(view, new SkinBinding.Background(name, folderName, true));
         if (initComplete) {
-            Observable.just(name)
-                    .map(new Function<String, Drawable>() {
-                        @Override
-                        public Drawable apply(String s) {
-                            return getHDDrawable(s, folderName);
-                        }
-                    })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable>() {
-
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
-
-                        @Override
-                        public void onNext(Drawable drawable) {
-                            view.setBackground(drawable);
-                        }
-
-                        @Override
-                        public void onError(Throwable e) {
-
-                        }
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
+                @Override
+                Drawable load() {
+                    return getHDDrawable(name, folderName);
+                }
 
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (assetsHD == null) assetsHD = new HashMap<>();
-            assetsHD.put(view, name + ":" + folderName);
+                @Override
+                void apply(Drawable drawable) {
+                    view.setBackground(drawable);
+                }
+            }, view);
         }
     }
 
@@ -921,92 +1700,206 @@ public class SkinManager implements Skin {
     }
 
     @Override
-    public void setHDBackground(String name, final String folderName, final View... views) {
+    public void setHDBackground(final String name, final String folderName, final View... views) {
+        for (View view : views) {
+            bindings.put(view, new SkinBinding.Background(name, folderName, true));
+        }
         if (initComplete) {
-            Observable.just(name)
-                    .map(new Function<String, Drawable>() {
-                        @Override
-                        public Drawable apply(String s) {
-                            return getHDDrawable(s, folderName);
-                        }
-                    })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable>() {
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
+                @Override
+                Drawable load() {
+                    return getHDDrawable(name, folderName);
+                }
 
-                        Disposable d;
+                @Override
+                void apply(Drawable drawable) {
+                    for (View view : views) {
+                        view.setBackground(drawable);
+                    }
+                }
+            }, views);
+        }
+    }
 
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
+    @Override
+    public void setHDBackground(String name, View... views) {
+        setHDBackground(name, defaultFolder, views);
+    }
 
-                        @Override
-                        public void onNext(Drawable drawable) {
-                            for (View view : views) {
-                                view.setBackground(drawable);
-                            }
-                        }
+    /**
+     * 通过句柄从skin中获取图片并设置为background,如果未获取到会设置为透明状态
+     *
+     * @param view        要设置background的控件
+     * @param drawableKey 生成的句柄类中drawable下的句柄
+     */
+    public void setBackground(View view, int drawableKey) {
+        setKeyBackground(view, drawableKey, false);
+    }
 
-                        @Override
-                        public void onError(Throwable e) {
+    /**
+     * 通过句柄从skin中获取高清的图片并设置为background
+     *
+     * @see #setBackground(View, int)
+     */
+    public void setHDBackground(View view, int drawableKey) {
+        setKeyBackground(view, drawableKey, true);
+    }
 
-                        }
+    void setKeyBackground(final View view, final int drawableKey, final boolean hd) {
+        getKeyCache();
+        bindings.put(view, new SkinBinding.KeyBackground(drawableKey, hd));
+        if (initComplete) {
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
+                @Override
+                Drawable load() {
+                    return hd ? getHDDrawable(drawableKey) : getDrawable(drawableKey);
+                }
 
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (assetsHD == null) assetsHD = new HashMap<>();
-            for (View view : views) {
-                assetsHD.put(view, name + ":" + folderName);
-            }
+                @Override
+                void apply(Drawable drawable) {
+                    view.setBackground(drawable);
+                }
+            }, view);
         }
     }
 
-    @Override
-    public void setHDBackground(String name, View... views) {
-        setHDBackground(name, defaultFolder, views);
+    /**
+     * 按照指定的尺寸从skin中获取PNG图片并设置为background,图片比指定的尺寸大时会在解码时缩小,减少位图占用的内存
+     *
+     * @param view       要设置background的控件
+     * @param name       图片名称
+     * @param folderName 图片所在文件夹名称
+     * @param width      控件显示的宽度
+     * @param height     控件显示的高度
+     */
+    public void setBackground(View view, String name, String folderName, int width, int height) {
+        setSizedBackground(view, name, folderName, false, width, height);
+    }
+
+    /**
+     * 按照指定的尺寸从skin中获取高清的PNG图片并设置为background
+     *
+     * @see #setBackground(View, String, String, int, int)
+     */
+    public void setHDBackground(View view, String name, String folderName, int width, int height) {
+        setSizedBackground(view, name, folderName, true, width, height);
+    }
+
+    /**
+     * 按照控件的尺寸从skin中获取PNG图片并设置为background,图片比控件大时会在解码时缩小,
+     * 控件还没有布局时会在布局完成后再获取图片
+     *
+     * @param view       要设置background的控件
+     * @param name       图片名称
+     * @param folderName 图片所在文件夹名称
+     */
+    public void setFitBackground(View view, String name, String folderName) {
+        setSizedBackground(view, name, folderName, false, 0, 0);
+    }
+
+    public void setFitBackground(View view, String name) {
+        setFitBackground(view, name, defaultFolder);
+    }
+
+    /**
+     * 按照控件的尺寸从skin中获取高清的PNG图片并设置为background
+     *
+     * @see #setFitBackground(View, String, String)
+     */
+    public void setFitHDBackground(View view, String name, String folderName) {
+        setSizedBackground(view, name, folderName, true, 0, 0);
+    }
+
+    public void setFitHDBackground(View view, String name) {
+        setFitHDBackground(view, name, defaultFolder);
+    }
+
+    /**
+     * @param width  小于等于0时使用控件的尺寸
+     * @param height 小于等于0时使用控件的尺寸
+     */
+    void setSizedBackground(final View view, final String name, final String folderName, final boolean hd,
+                            int width, int height) {
+        bindings.put(view, new SkinBinding.SizedBackground(name, folderName, hd, width, height));
+        if (!initComplete) return;
+        if (width <= 0 || height <= 0) {
+            width = view.getWidth();
+            height = view.getHeight();
+        }
+        if (width <= 0 || height <= 0) {
+            view.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+                @Override
+                public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                    if (right - left > 0 && bottom - top > 0) {
+                        v.removeOnLayoutChangeListener(this);
+                        submitSizedBackground(v, name, folderName, hd, right - left, bottom - top);
+                    }
+                }
+            });
+            return;
+        }
+        submitSizedBackground(view, name, folderName, hd, width, height);
+    }
+
+    private void submitSizedBackground(final View view, final String name, final String folderName,
+                                       final boolean hd, final int width, final int height) {
+        applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
+            @Override
+            Drawable load() {
+                return hd ? getHDDrawable(name, folderName, width, height)
+                        : getDrawable(name, folderName, width, height);
+            }
+
+            @Override
+            void apply(Drawable drawable) {
+                view.setBackground(drawable);
+            }
+        }, view);
     }
 
-    public void setTypeface(final TextView tv, String name) {
+    public void setTypeface(final TextView tv, final String name) {
+        bindings.put(tv, new SkinBinding.Font(name));
         if (initComplete) {
-            Observable.just(name)
-                    .map(new Function<String, Typeface>() {
-                        @Override
-                        public Typeface apply(String s) {
-                            return getTypeface(s);
-                        }
-                    })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Typeface>() {
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
+            applyQueue.submit(new SkinApplyQueue.Task<Typeface>() {
+                @Override
+                Typeface load() {
+                    return getTypeface(name);
+                }
 
-                        @Override
-                        public void onNext(Typeface typeface) {
-                            tv.setTypeface(typeface);
-                        }
+                @Override
+                void apply(Typeface typeface) {
+                    tv.setTypeface(typeface);
+                }
+            }, tv);
+        }
+    }
 
-                        @Override
-                        public void onError(Throwable e) {
-                        }
+    /**
+     * 将skin中对应名称的颜色设置为背景色
+     *
+     * @param view      要设置背景色的控件
+     * @param colorName 颜色名称
+     */
+    public void setBackgroundColor(View view, String colorName) {
+        bindings.put(view, new SkinBinding.BackgroundColor(colorName));
+        if (initComplete) {
+            view.setBackgroundColor(getColor(colorName));
+        }
+    }
 
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (typefaceMap == null) typefaceMap = new HashMap<>();
-            typefaceMap.put(tv, name);
+    /**
+     * 记录{@link SkinLayoutFactory}从布局中读取的控件的所有资源,
+     * skin已经加载完成时立即设置,已经缓存的图片不经过加载队列
+     */
+    void bind(View view, List<SkinBinding> list) {
+        bindings.putAll(view, list);
+        if (initComplete) {
+            for (SkinBinding binding : list) {
+                if (!binding.applyCached(this, view)) {
+                    binding.apply(this, view);
+                }
+            }
         }
     }
 
@@ -1016,48 +1909,25 @@ public class SkinManager implements Skin {
      * @param view 要设置background的控件
      * @param name drawable中对应图片的名称
      */
-    public void setResBackground(final View view, String name) {
+    public void setResBackground(final View view, final String name) {
+        bindings.put(view, new SkinBinding.ResBackground(name));
         if (initComplete) {
-            Observable.just(name)
-                    .map(new Function<String, Drawable>() {
-                        @Override
-                        public Drawable apply(String s) {
-                            return getResDrawable(s);
-                        }
-                    }).subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable>() {
-
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
-
-                        @Override
-                        public void onNext(Drawable drawable) {
-                            int paddingLeft = view.getPaddingLeft();
-                            int paddingTop = view.getPaddingTop();
-                            int paddingRight = view.getPaddingRight();
-                            int paddingBottom = view.getPaddingBottom();
-                            view.setBackground(drawable);
-                            view.setPadding(paddingLeft, paddingTop, paddingRight, paddingBottom);
-                        }
-
-                        @Override
-                        public void onError(Throwable e) {
-
-                        }
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
+                @Override
+                Drawable load() {
+                    return getResDrawable(name);
+                }
 
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (drawableMap == null) drawableMap = new HashMap<>();
-            drawableMap.put(view, name);
+                @Override
+                void apply(Drawable drawable) {
+                    int paddingLeft = view.getPaddingLeft();
+                    int paddingTop = view.getPaddingTop();
+                    int paddingRight = view.getPaddingRight();
+                    int paddingBottom = view.getPaddingBottom();
+                    view.setBackground(drawable);
+                    view.setPadding(paddingLeft, paddingTop, paddingRight, paddingBottom);
+                }
+            }, view);
         }
     }
 
@@ -1067,10 +1937,11 @@ public class SkinManager implements Skin {
     @Override
     public void setCompoundDrawables(final TextView view, final String left, final String top,
                                      final String right, final String bottom, final String foldName) {
+        bindings.put(view, new SkinBinding.CompoundDrawables(left, top, right, bottom, foldName));
         if (initComplete) {
-            Observable.create(new ObservableOnSubscribe<Drawable[]>() {
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable[]>() {
                 @Override
-                public void subscribe(ObservableEmitter<Drawable[]> emitter) {
+                Drawable[] load() {
                     Drawable[] drawables = new Drawable[4];
                     if (!TextUtils.isEmpty(left)) {
                         Drawable leftDrawable = getDrawable(left, foldName);
@@ -1091,47 +1962,19 @@ public class SkinManager implements Skin {
                         drawables[2] = rightDrawable;
                     }
                     if (!TextUtils.isEmpty(bottom)) {
-                        Drawable bottomDrawable = getDrawable(right);
+                        Drawable bottomDrawable = getDrawable(bottom, foldName);
                         bottomDrawable.setBounds(0, 0, bottomDrawable.getMinimumWidth(),
                                 bottomDrawable.getMinimumHeight());
                         drawables[3] = bottomDrawable;
                     }
-                    emitter.onNext(drawables);
-                    emitter.onComplete();
+                    return drawables;
                 }
-            })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable[]>() {
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
 
-                        @Override
-                        public void onNext(Drawable[] drawables) {
-                            view.setCompoundDrawables(drawables[0], drawables[1],
-                                    drawables[2], drawables[3]);
-                        }
-
-                        @Override
-                        public void onError(Throwable e) {
-
-                        }
-
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (compoundDrawablesMap == null) compoundDrawablesMap = new HashMap<>();
-            compoundDrawablesMap.put(view, (TextUtils.isEmpty(left) ? "" : left) + "|"
-                    + (TextUtils.isEmpty(top) ? "" : top) + "|"
-                    + (TextUtils.isEmpty(right) ? "" : right) + "|"
-                    + (TextUtils.isEmpty(bottom) ? "" : bottom) + "|" + foldName);
+                @Override
+                void apply(Drawable[] drawables) {
+                    view.setCompoundDrawables(drawables[0], drawables[1], drawables[2], drawables[3]);
+                }
+            }, view);
         }
     }
 
@@ -1151,43 +1994,20 @@ public class SkinManager implements Skin {
     @Override
     public void setProgressBarDrawable(final ProgressBar progressBar, final String background,
                                        final String progress, final String foldName) {
+        bindings.put(progressBar, new SkinBinding.ProgressDrawable(background, progress, foldName));
         if (initComplete) {
-            Observable.create(new ObservableOnSubscribe<Drawable>() {
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
                 @Override
-                public void subscribe(ObservableEmitter<Drawable> emitter) {
-                    emitter.onNext(DrawableUtils.getProgressDrawable(getDrawable(background, foldName),
-                            getDrawable(progress, foldName)));
-                    emitter.onComplete();
+                Drawable load() {
+                    return DrawableUtils.getProgressDrawable(getDrawable(background, foldName),
+                            getDrawable(progress, foldName));
                 }
-            })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable>() {
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
-
-                        @Override
-                        public void onNext(Drawable drawable) {
-                            progressBar.setProgressDrawable(drawable);
-                        }
 
-                        @Override
-                        public void onError(Throwable e) {
-
-                        }
-
-                        @Override
-                        public void onComplete() {
-                            d.dispose();
-                        }
-                    });
-        } else {
-            if (assets == null) assets = new HashMap<>();
-            assets.put(progressBar, background + "|" + progress + ":" + foldName);
+                @Override
+                void apply(Drawable drawable) {
+                    progressBar.setProgressDrawable(drawable);
+                }
+            }, progressBar);
         }
     }
 
@@ -1207,43 +2027,19 @@ public class SkinManager implements Skin {
      */
     public void setSelector(final View view, final String normal,
                             final String pressed, final String foldName) {
+        bindings.put(view, new SkinBinding.Selector(normal, pressed, foldName));
         if (initComplete) {
-            Observable.create(new ObservableOnSubscribe<Drawable>() {
+            applyQueue.submit(new SkinApplyQueue.Task<Drawable>() {
                 @Override
-                public void subscribe(ObservableEmitter<Drawable> emitter) {
-                    emitter.onNext(getSelector(normal, pressed, foldName));
-                    emitter.onComplete();
+                Drawable load() {
+                    return getSelector(normal, pressed, foldName);
                 }
-            })
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new Observer<Drawable>() {
-
-                        Disposable d;
-
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                            this.d = d;
-                        }
-
-                        @Override
-                        public void onNext(Drawable drawable) {
-                            view.setBackground(drawable);
-                        }
 
-                        @Override
-                        public void onError(Throwable e) {
-
-                        }
-
-                        @Override
-                        public void onComplete() {
-                            if (!d.isDisposed()) d.dispose();
-                        }
-                    });
-        } else {
-            if (assets == null) assets = new HashMap<>();
-            assets.put(view, normal + "|" + pressed + ":" + foldName);
+                @Override
+                void apply(Drawable drawable) {
+                    view.setBackground(drawable);
+                }
+            }, view);
         }
     }
 
@@ -1278,16 +2074,19 @@ public class SkinManager implements Skin {
      * @param dialog 对话框控件对象
      */
     public void setDialogBackground(View dialog) {
-        if (initComplete) {
-            Drawable dialogBackground = getResDrawable("dialog_background");
-            if (dialogBackground instanceof ColorDrawable) {
-                dialog.setBackground(getResDrawable("dialog_fram"));
-            } else {
-                dialog.setBackground(dialogBackground);
+        long traceStart = SkinTrace.begin(SkinTrace.SET_DIALOG_BACKGROUND);
+        try {
+            bindings.put(dialog, SkinBinding.CommonBackground.DIALOG_BACKGROUND);
+            if (initComplete) {
+                Drawable dialogBackground = getResDrawable("dialog_background");
+                if (dialogBackground instanceof ColorDrawable) {
+                    dialog.setBackground(getResDrawable("dialog_fram"));
+                } else {
+                    dialog.setBackground(dialogBackground);
+                }
             }
-        } else {
-            if (comMap == null) comMap = new HashMap<>();
-            comMap.put(dialog, dialogBackground);
+        } finally {
+            SkinTrace.end(SkinTrace.SET_DIALOG_BACKGROUND, traceStart);
         }
     }
 
@@ -1297,22 +2096,35 @@ public class SkinManager implements Skin {
      * @param view 线控件的对象
      */
     public void setHorizontalLine(View view) {
-        if (initComplete) {
-            if (lineHorizontal instanceof ColorDrawable) {
-                view.setBackground(lineHorizontal);
-                Pair<Boolean, Integer> pair = getColorWithResult("colorLine");
-                if (pair.first) {
-                    view.setBackgroundColor(pair.second);
-                } else {
+        long traceStart = SkinTrace.begin(SkinTrace.SET_HORIZONTAL_LINE);
+        try {
+            bindings.put(view, SkinBinding.CommonBackground.HORIZONTAL_LINE);
+            if (initComplete) {
+                if (lineHorizontal instanceof ColorDrawable) {
                     view.setBackground(lineHorizontal);
+                    Pair<Boolean, Integer> pair = getColorWithResult("colorLine");
+                    if (pair.first) {
+                        view.setBackgroundColor(pair.second);
+                    } else {
+                        view.setBackground(lineHorizontal);
+                    }
+                } else {
+                    view.setBackground(copyDrawable(lineHorizontal));
                 }
-            } else {
-                view.setBackground(new BitmapDrawable(null, ((BitmapDrawable) lineHorizontal).getBitmap()));
             }
-        } else {
-            if (comMap == null) comMap = new HashMap<>();
-            comMap.put(view, lineHorizontal);
+        } finally {
+            SkinTrace.end(SkinTrace.SET_HORIZONTAL_LINE, traceStart);
+        }
+    }
+
+    /**
+     * 分割线的图片可能是单独的位图,也可能在图集中,每个控件使用新的Drawable对象,共享同一个位图
+     */
+    private static Drawable copyDrawable(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            return new BitmapDrawable(null, ((BitmapDrawable) drawable).getBitmap());
         }
+        return drawable.getConstantState().newDrawable();
     }
 
     /**
@@ -1354,20 +2166,23 @@ public class SkinManager implements Skin {
      * @param view 线的对象
      */
     public void setVerticalLine(View view) {
-        if (initComplete) {
-            if (lineHorizontal instanceof ColorDrawable) {
-                Pair<Boolean, Integer> pair = getColorWithResult("colorLine");
-                if (pair.first) {
-                    view.setBackgroundColor(pair.second);
+        long traceStart = SkinTrace.begin(SkinTrace.SET_VERTICAL_LINE);
+        try {
+            bindings.put(view, SkinBinding.CommonBackground.VERTICAL_LINE);
+            if (initComplete) {
+                if (lineHorizontal instanceof ColorDrawable) {
+                    Pair<Boolean, Integer> pair = getColorWithResult("colorLine");
+                    if (pair.first) {
+                        view.setBackgroundColor(pair.second);
+                    } else {
+                        view.setBackground(lineVertical);
+                    }
                 } else {
-                    view.setBackground(lineVertical);
+                    view.setBackground(copyDrawable(lineVertical));
                 }
-            } else {
-                view.setBackground(new BitmapDrawable(null, ((BitmapDrawable) lineVertical).getBitmap()));
             }
-        } else {
-            if (comMap == null) comMap = new HashMap<>();
-            comMap.put(view, lineVertical);
+        } finally {
+            SkinTrace.end(SkinTrace.SET_VERTICAL_LINE, traceStart);
         }
     }
 
@@ -1410,11 +2225,9 @@ public class SkinManager implements Skin {
      * @param view 需要设置颜色的TextView控件对象
      */
     public void setPrimaryColor(TextView view) {
+        bindings.put(view, SkinBinding.TextColor.COLOR_PRIMARY);
         if (initComplete) {
-            view.setTextColor(colorPrimary);
-        } else {
-            if (colorPrimaryList == null) colorPrimaryList = new ArrayList<>();
-            colorPrimaryList.add(view);
+            view.setTextColor(getColorPrimary());
         }
     }
 
@@ -1451,17 +2264,28 @@ public class SkinManager implements Skin {
         }
     }
 
+    /**
+     * 将控件文字颜色设置为skin中对应名称的颜色
+     *
+     * @param view      需要设置颜色的TextView控件对象
+     * @param colorName 颜色名称
+     */
+    public void setTextColor(TextView view, String colorName) {
+        bindings.put(view, new SkinBinding.NamedTextColor(colorName));
+        if (initComplete) {
+            view.setTextColor(getColor(colorName));
+        }
+    }
+
     /**
      * 将控件文字颜色设置为主色
      *
      * @param view 需要设置颜色的TextView控件对象
      */
     public void setTextColor(TextView view) {
+        bindings.put(view, SkinBinding.TextColor.COLOR_TEXT);
         if (initComplete) {
-            view.setTextColor(colorText);
-        } else {
-            if (colorTextList == null) colorTextList = new ArrayList<>();
-            colorTextList.add(view);
+            view.setTextColor(getColorText());
         }
     }
 
@@ -1500,11 +2324,9 @@ public class SkinManager implements Skin {
 
     @Override
     public void setTextColorLight(TextView view) {
+        bindings.put(view, SkinBinding.TextColor.COLOR_TEXT_LIGHT);
         if (initComplete) {
-            view.setTextColor(colorTextLight);
-        } else {
-            if (colorTextLightList == null) colorTextLightList = new ArrayList<>();
-            colorTextLightList.add(view);
+            view.setTextColor(getColorTextLight());
         }
     }
 
@@ -1529,11 +2351,9 @@ public class SkinManager implements Skin {
 
     @Override
     public void setTextColorDim(TextView view) {
+        bindings.put(view, SkinBinding.TextColor.COLOR_TEXT_DIM);
         if (initComplete) {
-            view.setTextColor(colorTextDim);
-        } else {
-            if (colorTextDimList == null) colorTextDimList = new ArrayList<>();
-            colorTextDimList.add(view);
+            view.setTextColor(getColorTextDim());
         }
     }
 
@@ -1558,11 +2378,9 @@ public class SkinManager implements Skin {
 
     @Override
     public void setTextColorDark(TextView view) {
+        bindings.put(view, SkinBinding.TextColor.COLOR_TEXT_DARK);
         if (initComplete) {
-            view.setTextColor(colorTextDark);
-        } else {
-            if (colorTextDarkList == null) colorTextDarkList = new ArrayList<>();
-            colorTextDarkList.add(view);
+            view.setTextColor(getColorTextDark());
         }
     }
 
@@ -1590,11 +2408,10 @@ public class SkinManager implements Skin {
      */
     @Override
     public void setTextPrimaryColorState(TextView view) {
+        bindings.put(view, SkinBinding.TextColor.COLOR_STATE);
         if (initComplete) {
-            view.setTextColor(SelectorUtils.createColorState(colorText, colorPrimary));
-        } else {
-            if (colorStateList == null) colorStateList = new ArrayList<>();
-            colorStateList.add(view);
+            Palette palette = this.palette;
+            view.setTextColor(SelectorUtils.createColorState(palette.get(Palette.TEXT), palette.get(Palette.PRIMARY)));
         }
     }
 
@@ -0,0 +1,231 @@
+package com.github.skinmanager;
+
+import android.graphics.Bitmap;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SkinManager获取资源时的计数和解码耗时,通过{@link SkinManager#getMetrics()}获取.
+ * 计数和解码耗时直方图都按线程分散到不同的位置累加,不加锁,可以在正式版本中一直开启.
+ * 通过{@link #snapshot()}获取某一时刻的统计结果用于输出日志或者上报
+ */
+public final class SkinMetrics {
+
+    /**
+     * 打开assets下的文件的次数,包括只读取图片尺寸
+     */
+    public static final int ASSET_OPENS = 0;
+    /**
+     * 调用{@link android.content.res.Resources#getIdentifier(String, String, String)}的次数,不包括命中id缓存的
+     */
+    public static final int GET_IDENTIFIER = 1;
+    /**
+     * 当前skin中没有,从默认的skin中获取到资源的次数
+     */
+    public static final int FALLBACK_HITS = 2;
+    /**
+     * 从assets中加载字体的次数
+     */
+    public static final int TYPEFACE_LOADS = 3;
+    /**
+     * 获取图片时命中位图缓存的次数
+     */
+    public static final int CACHE_HITS = 4;
+    /**
+     * 获取图片时没有命中位图缓存的次数
+     */
+    public static final int CACHE_MISSES = 5;
+    /**
+     * skin加载完成或者切换后重新设置的控件资源的数量
+     */
+    public static final int BINDINGS_REPLAYED = 6;
+    /**
+     * 解码出的位图占用的字节数之和,复用位图时为复用的位图占用的字节数
+     */
+    public static final int BYTES_DECODED = 7;
+    public static final int COUNTER_COUNT = 8;
+
+    /**
+     * 按位图配置分别统计解码,{@link Bitmap.Config}的值超出时和为null时统计在最后一个位置
+     */
+    private static final int CONFIG_SLOTS = 8;
+    /**
+     * 解码耗时直方图的桶数量,第i个桶为[2^i, 2^(i+1))纳秒
+     */
+    public static final int HISTOGRAM_BUCKETS = 40;
+
+    private static final int DECODES = COUNTER_COUNT;
+    private static final int DECODE_NANOS = DECODES + CONFIG_SLOTS;
+    /**
+     * 每个分段的长度,补齐到多个缓存行,避免不同线程累加时互相影响
+     */
+    private static final int STRIDE = 32;
+    private static final int STRIPES = 8;
+    /**
+     * 直方图每个分段的长度,分段之间补齐两个缓存行
+     */
+    private static final int HISTOGRAM_STRIDE = CONFIG_SLOTS * HISTOGRAM_BUCKETS + 16;
+
+    private final AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIDE);
+    private final AtomicLongArray histogram = new AtomicLongArray(STRIPES * HISTOGRAM_STRIDE);
+
+    SkinMetrics() {
+    }
+
+    void increment(int counter) {
+        counters.incrementAndGet(stripe() + counter);
+    }
+
+    /**
+     * 记录一次解码
+     *
+     * @param config 解码时的位图配置
+     * @param nanos  解码耗时
+     * @param bytes  解码出的位图占用的字节数,解码失败时为0
+     */
+    void recordDecode(Bitmap.Config config, long nanos, long bytes) {
+        int slot = configSlot(config);
+        int index = stripeIndex();
+        int stripe = index * STRIDE;
+        counters.incrementAndGet(stripe + DECODES + slot);
+        counters.addAndGet(stripe + DECODE_NANOS + slot, nanos);
+        counters.addAndGet(stripe + BYTES_DECODED, bytes);
+        histogram.incrementAndGet(index * HISTOGRAM_STRIDE + slot * HISTOGRAM_BUCKETS + bucket(nanos));
+    }
+
+    /**
+     * 清空所有的统计
+     */
+    public void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        for (int i = 0; i < histogram.length(); i++) {
+            histogram.set(i, 0);
+        }
+    }
+
+    /**
+     * 汇总当前的统计结果,统计在汇总过程中仍然可能变化,不同计数之间不保证是同一时刻的
+     */
+    public Snapshot snapshot() {
+        long[] sums = new long[STRIDE];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            for (int i = 0; i < STRIDE; i++) {
+                sums[i] += counters.get(stripe * STRIDE + i);
+            }
+        }
+        long[][] buckets = new long[CONFIG_SLOTS][HISTOGRAM_BUCKETS];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            for (int slot = 0; slot < CONFIG_SLOTS; slot++) {
+                for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                    buckets[slot][i] += histogram.get(stripe * HISTOGRAM_STRIDE + slot * HISTOGRAM_BUCKETS + i);
+                }
+            }
+        }
+        return new Snapshot(sums, buckets);
+    }
+
+    private static int stripe() {
+        return stripeIndex() * STRIDE;
+    }
+
+    private static int stripeIndex() {
+        return (int) Thread.currentThread().getId() & (STRIPES - 1);
+    }
+
+    private static int configSlot(Bitmap.Config config) {
+        return config == null ? CONFIG_SLOTS - 1 : Math.min(config.ordinal(), CONFIG_SLOTS - 1);
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos <= 1) return 0;
+        return Math.min(63 - Long.numberOfLeadingZeros(nanos), HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * 某一时刻的统计结果,创建后不再变化
+     */
+    public static final class Snapshot {
+        private final long[] sums;
+        private final long[][] buckets;
+
+        private Snapshot(long[] sums, long[][] buckets) {
+            this.sums = sums;
+            this.buckets = buckets;
+        }
+
+        /**
+         * @param counter {@link #ASSET_OPENS}, {@link #CACHE_HITS}等
+         */
+        public long get(int counter) {
+            return sums[counter];
+        }
+
+        /**
+         * @return 所有位图配置的解码次数
+         */
+        public long getDecodes() {
+            long total = 0;
+            for (int slot = 0; slot < CONFIG_SLOTS; slot++) {
+                total += sums[DECODES + slot];
+            }
+            return total;
+        }
+
+        public long getDecodes(Bitmap.Config config) {
+            return sums[DECODES + configSlot(config)];
+        }
+
+        /**
+         * @return 所有位图配置的解码总耗时, 纳秒
+         */
+        public long getDecodeNanos() {
+            long total = 0;
+            for (int slot = 0; slot < CONFIG_SLOTS; slot++) {
+                total += sums[DECODE_NANOS + slot];
+            }
+            return total;
+        }
+
+        public long getDecodeNanos(Bitmap.Config config) {
+            return sums[DECODE_NANOS + configSlot(config)];
+        }
+
+        /**
+         * @return 解码耗时直方图, 第i个元素为耗时在[2^i, 2^(i+1))纳秒之间的解码次数
+         */
+        public long[] getDecodeHistogram(Bitmap.Config config) {
+            return buckets[configSlot(config)].clone();
+        }
+
+        /**
+         * @return 位图缓存的命中率, 没有获取过图片时为0
+         */
+        public float getCacheHitRate() {
+            long total = sums[CACHE_HITS] + sums[CACHE_MISSES];
+            return total == 0 ? 0 : (float) sums[CACHE_HITS] / total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("SkinMetrics{");
+            sb.append("assetOpens=").append(sums[ASSET_OPENS]);
+            sb.append(", getIdentifier=").append(sums[GET_IDENTIFIER]);
+            sb.append(", fallbackHits=").append(sums[FALLBACK_HITS]);
+            sb.append(", typefaceLoads=").append(sums[TYPEFACE_LOADS]);
+            sb.append(", cacheHits=").append(sums[CACHE_HITS]);
+            sb.append(", cacheMisses=").append(sums[CACHE_MISSES]);
+            sb.append(", bindingsReplayed=").append(sums[BINDINGS_REPLAYED]);
+            sb.append(", bytesDecoded=").append(sums[BYTES_DECODED]);
+            for (Bitmap.Config config : Bitmap.Config.values()) {
+                long decodes = getDecodes(config);
+                if (decodes > 0) {
+                    sb.append(", decodes[").append(config).append("]=").append(decodes)
+                            .append("/").append(getDecodeNanos(config) / 1000000).append("ms");
+                }
+            }
+            return sb.append('}').toString();
+        }
+    }
+}
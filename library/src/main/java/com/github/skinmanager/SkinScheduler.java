@@ -0,0 +1,47 @@
+package com.github.skinmanager;
+
+/**
+ * 加载skin资源的线程调度,控件的资源和预加载的图片都在这里解码.
+ * 默认使用{@link DefaultSkinScheduler},可以通过{@link SkinManager#setScheduler(SkinScheduler)}替换
+ */
+public interface SkinScheduler {
+
+    /**
+     * 正在显示或者还没有添加到窗口的控件的资源,最先加载
+     */
+    int PRIORITY_VISIBLE = 0;
+    /**
+     * {@link SkinManager#prefetch(java.util.Collection)}预加载的图片
+     */
+    int PRIORITY_PREFETCH = 1;
+    /**
+     * 已经添加到窗口但是没有显示的控件的资源,最后加载
+     */
+    int PRIORITY_OFFSCREEN = 2;
+
+    /**
+     * 在工作线程中执行任务,可以在任意线程调用
+     *
+     * @param task     任务
+     * @param priority {@link #PRIORITY_VISIBLE}等,数值越小越先执行
+     */
+    void execute(Runnable task, int priority);
+
+    /**
+     * 移除还没有开始执行的任务,可以在任意线程调用
+     *
+     * @param task 传给{@link #execute(Runnable, int)}的任务
+     * @return 是否移除了, 任务已经开始执行或者已经执行完成时为false
+     */
+    boolean remove(Runnable task);
+
+    /**
+     * @return 当前的工作线程数量
+     */
+    int getThreadCount();
+
+    /**
+     * @return 等待执行的任务数量
+     */
+    int getQueueDepth();
+}
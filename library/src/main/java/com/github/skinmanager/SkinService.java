@@ -5,10 +5,8 @@ import android.content.Intent;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.StateListDrawable;
-import android.os.Handler;
 import android.os.IBinder;
 import android.os.SystemProperties;
-import android.text.TextUtils;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
@@ -21,44 +19,75 @@ import com.github.skinmanager.utils.SelectorUtils;
 public class SkinService extends Service implements Skin, SkinManager.OnResourceCompleteListener {
 
     /**
-     * @see SkinManager#colorPrimary
+     * 旧版本的颜色字段,保留一个版本,在{@link #onResourceComplete()}中更新
+     *
+     * @deprecated 使用{@link #getColorPrimary()}
      */
+    @Deprecated
     public int colorPrimary;
     /**
-     * @see SkinManager#colorText
+     * @deprecated 使用{@link #getColorPrimaryLight()}
+     */
+    @Deprecated
+    public int colorPrimaryLight;
+    /**
+     * @deprecated 使用{@link #getColorText()}
      */
+    @Deprecated
     public int colorText;
     /**
-     * @see SkinManager#colorTextLight
+     * @deprecated 使用{@link #getColorTextLight()}
      */
+    @Deprecated
     public int colorTextLight;
     /**
-     * @see SkinManager#colorTextDim
+     * @deprecated 使用{@link #getColorTextDim()}
      */
+    @Deprecated
     public int colorTextDim;
     /**
-     * @see SkinManager#colorTextDark
+     * @deprecated 使用{@link #getColorTextDark()}
      */
+    @Deprecated
     public int colorTextDark;
     /**
-     * @see SkinManager#colorBackground
+     * @deprecated 使用{@link #getColorBackground()}
      */
+    @Deprecated
     public int colorBackground;
     /**
-     * @see SkinManager#colorBackgroundLight
+     * @deprecated 使用{@link #getColorBackgroundLight()}
      */
+    @Deprecated
     public int colorBackgroundLight;
 
     private boolean skinComplete = false;
     private SkinManager skinManager = SkinManager.getInstance();
-    private Handler skinHandler = new Handler();
+    private SkinManager.OnSkinChangeListener skinChangeListener = new SkinManager.OnSkinChangeListener() {
+        @Override
+        public void onSkinChange(String path) {
+            skinComplete = false;
+        }
+
+        @Override
+        public void onSkinChangeComplete(String path) {
+            onResourceComplete();
+        }
+    };
 
     @Override
     public void onCreate() {
         super.onCreate();
+        skinManager.registerOnSkinChangeListener(this, skinChangeListener);
         skinManager.initResource(getApplicationContext(), SystemProperties.get(SKIN_PATH), this);
     }
 
+    @Override
+    public void onDestroy() {
+        skinManager.unregisterOnSkinChangeListener(skinChangeListener);
+        super.onDestroy();
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
         return null;
@@ -68,30 +97,66 @@ public class SkinService extends Service implements Skin, SkinManager.OnResource
      * 加载完skin后调用,运行在主线程
      */
     public void onResourceComplete() {
-        colorPrimary = skinManager.colorPrimary;
-        colorText = skinManager.colorText;
-        colorTextLight = skinManager.colorTextLight;
-        colorTextDim = skinManager.colorTextDim;
-        colorTextDark = skinManager.colorTextDark;
-        colorBackground = skinManager.colorBackground;
-        colorBackgroundLight = skinManager.colorBackgroundLight;
+        Palette palette = skinManager.getPalette();
+        colorPrimary = palette.get(Palette.PRIMARY);
+        colorPrimaryLight = palette.get(Palette.PRIMARY_LIGHT);
+        colorText = palette.get(Palette.TEXT);
+        colorTextLight = palette.get(Palette.TEXT_LIGHT);
+        colorTextDim = palette.get(Palette.TEXT_DIM);
+        colorTextDark = palette.get(Palette.TEXT_DARK);
+        colorBackground = palette.get(Palette.BACKGROUND);
+        colorBackgroundLight = palette.get(Palette.BACKGROUND_LIGHT);
         skinComplete = true;
-        skinHandler.post(checkSkinChange);
     }
 
     /**
-     * 每秒检查一次skin是被切换
+     * @see SkinManager#getColorPrimary()
      */
-    private Runnable checkSkinChange = new Runnable() {
-        @Override
-        public void run() {
-            String s = SystemProperties.get(SKIN_PATH_CHANGE_MARK);
-            if ((!TextUtils.isEmpty(s)) && s.equals("1")) {
-                android.os.Process.killProcess(android.os.Process.myPid());
-            }
-            skinHandler.postDelayed(this, 1000);
-        }
-    };
+    public int getColorPrimary() {
+        return skinManager.getColorPrimary();
+    }
+
+    /**
+     * @see SkinManager#getColorText()
+     */
+    public int getColorText() {
+        return skinManager.getColorText();
+    }
+
+    /**
+     * @see SkinManager#getColorTextLight()
+     */
+    public int getColorTextLight() {
+        return skinManager.getColorTextLight();
+    }
+
+    /**
+     * @see SkinManager#getColorTextDim()
+     */
+    public int getColorTextDim() {
+        return skinManager.getColorTextDim();
+    }
+
+    /**
+     * @see SkinManager#getColorTextDark()
+     */
+    public int getColorTextDark() {
+        return skinManager.getColorTextDark();
+    }
+
+    /**
+     * @see SkinManager#getColorBackground()
+     */
+    public int getColorBackground() {
+        return skinManager.getColorBackground();
+    }
+
+    /**
+     * @see SkinManager#getColorBackgroundLight()
+     */
+    public int getColorBackgroundLight() {
+        return skinManager.getColorBackgroundLight();
+    }
 
     /**
      * 获取skinManager对象,如果未在其他地方进行过初始化,只有在onResourceComplete中获取才不为null
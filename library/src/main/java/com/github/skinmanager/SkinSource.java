@@ -0,0 +1,50 @@
+package com.github.skinmanager;
+
+import android.content.res.Resources;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个已经加载的skin.apk,包含它的Resources以及对应的资源id缓存和资源索引.
+ * 创建后不再变化,切换skin时整体替换,读取时不会读到新旧skin混合的状态
+ */
+final class SkinSource {
+
+    final String path;
+    final Resources res;
+    final ResourceIdCache ids;
+    final SkinIndex index;
+    /**
+     * skin中所有的颜色,无法遍历skin的资源时为null
+     */
+    final ColorTable colors;
+    /**
+     * assets下图片的原始尺寸,按尺寸解码时使用,避免每次都读取图片头
+     */
+    final ConcurrentHashMap<String, int[]> assetSizes = new ConcurrentHashMap<>();
+    /**
+     * assets下没有压缩的文件在apk中的位置,可以直接从apk文件中解码,读取apk失败时为null
+     */
+    final StoredAssets storedAssets;
+    /**
+     * skin打包时合并的小图片的图集
+     */
+    final SkinAtlas atlas;
+
+    /**
+     * 建立资源索引和读取颜色比较耗时,需要在异步线程中创建
+     *
+     * @param path    skin.apk的路径
+     * @param res     skin.apk对应的Resources
+     * @param metrics 统计查找资源id的次数
+     */
+    SkinSource(String path, Resources res, SkinMetrics metrics) {
+        this.path = path;
+        this.res = res;
+        this.ids = new ResourceIdCache(res, metrics);
+        this.index = SkinIndex.build(path, res);
+        this.colors = ColorTable.build(res, index);
+        this.storedAssets = StoredAssets.build(path);
+        this.atlas = SkinAtlas.build(res, index);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.skinmanager;
+
+import android.os.Looper;
+import android.os.Trace;
+
+/**
+ * skin耗时操作的{@link Trace}区段,在Perfetto/systrace中以 Skin: 开头显示.
+ * 设置了{@link SkinManager.OnSlowOperationListener}时,主线程中超过时间预算的区段会回调给监听
+ */
+final class SkinTrace {
+
+    static final String INIT_RESOURCE = "Skin:initResource";
+    static final String GET_RESOURCE = "Skin:getResource";
+    static final String INIT_COM = "Skin:initCom";
+    static final String SET_CACHE_VIEW = "Skin:setCacheView";
+    static final String DECODE = "Skin:decode";
+    static final String GET_TYPEFACE = "Skin:getTypeface";
+    static final String GET_RES_DRAWABLE = "Skin:getResDrawable";
+    static final String SET_DIALOG_BACKGROUND = "Skin:setDialogBackground";
+    static final String SET_HORIZONTAL_LINE = "Skin:setHorizontalLine";
+    static final String SET_VERTICAL_LINE = "Skin:setVerticalLine";
+
+    private static volatile SkinManager.OnSlowOperationListener slowListener;
+    private static volatile long budgetNanos;
+
+    private SkinTrace() {
+    }
+
+    static void setWatchdog(long budgetNanos, SkinManager.OnSlowOperationListener listener) {
+        SkinTrace.budgetNanos = budgetNanos;
+        SkinTrace.slowListener = listener;
+    }
+
+    /**
+     * 开始一个区段,需要在同一个线程中调用{@link #end(String, long)}结束
+     *
+     * @return 开始的时间
+     */
+    static long begin(String name) {
+        Trace.beginSection(name);
+        return System.nanoTime();
+    }
+
+    static void end(String name, long start) {
+        Trace.endSection();
+        SkinManager.OnSlowOperationListener listener = slowListener;
+        if (listener != null) {
+            long duration = System.nanoTime() - start;
+            if (duration > budgetNanos && Looper.myLooper() == Looper.getMainLooper()) {
+                listener.onSlowOperation(name, duration);
+            }
+        }
+    }
+}
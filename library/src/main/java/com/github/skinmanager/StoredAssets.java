@@ -0,0 +1,218 @@
+package com.github.skinmanager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * skin.apk中没有压缩的assets文件在apk中的位置.
+ * 加载skin时映射apk读取一次zip的中央目录,记录以STORED方式存储的文件的数据偏移,
+ * 解码这些图片时直接从apk文件的对应位置读取,不经过{@link android.content.res.AssetManager}的流复制.
+ * 压缩过的文件不在其中,仍然通过AssetManager读取.
+ * 读取时复用加载时打开的apk文件,记录的偏移只对这个文件有效,
+ * 需要新打开时先比较文件的长度和修改时间,apk在同一个路径被替换后不再直接读取
+ */
+final class StoredAssets {
+
+    private static final String ASSETS = "assets/";
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final int METHOD_STORED = 0;
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * 最多保留的空闲的apk文件数量,同时解码的线程更多时用完后关闭
+     */
+    private static final int MAX_IDLE_FILES = 4;
+
+    private final File file;
+    private final long length;
+    private final long lastModified;
+    /**
+     * assets下的路径和数据在apk中的偏移
+     */
+    private final Map<String, Long> offsets;
+    /**
+     * 已经打开的apk文件,每个文件同时只在一个线程中使用
+     */
+    private final ArrayDeque<RandomAccessFile> idleFiles = new ArrayDeque<>(MAX_IDLE_FILES);
+    private boolean closed;
+
+    private StoredAssets(File file, long length, long lastModified, Map<String, Long> offsets) {
+        this.file = file;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.offsets = offsets;
+    }
+
+    /**
+     * 读取apk的中央目录,需要在异步线程中调用
+     *
+     * @param path skin.apk的路径
+     * @return 不是有效的zip文件或者不支持的格式(zip64)时为null
+     */
+    static StoredAssets build(String path) {
+        File file = new File(path);
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < EOCD_SIZE || length > Integer.MAX_VALUE) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            Map<String, Long> offsets = readCentralDirectory(buffer, (int) length);
+            if (offsets == null) return null;
+            StoredAssets stored = new StoredAssets(file, length, file.lastModified(),
+                    Collections.unmodifiableMap(offsets));
+            stored.idleFiles.push(raf);
+            raf = null;
+            return stored;
+        } catch (Exception ignored) {
+            return null;
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    private static Map<String, Long> readCentralDirectory(MappedByteBuffer buffer, int length) {
+        int eocd = -1;
+        int min = Math.max(0, length - EOCD_SIZE - MAX_COMMENT_SIZE);
+        for (int i = length - EOCD_SIZE; i >= min; i--) {
+            if (buffer.getInt(i) == EOCD_SIGNATURE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) return null;
+        int count = buffer.getShort(eocd + 10) & 0xffff;
+        long directoryOffset = buffer.getInt(eocd + 16) & 0xffffffffL;
+        if (count == 0xffff || directoryOffset >= eocd) return null;
+        Map<String, Long> offsets = new HashMap<>();
+        int entry = (int) directoryOffset;
+        for (int i = 0; i < count; i++) {
+            if (entry + CENTRAL_HEADER_SIZE > eocd || buffer.getInt(entry) != CENTRAL_SIGNATURE) return null;
+            int flags = buffer.getShort(entry + 8) & 0xffff;
+            int method = buffer.getShort(entry + 10) & 0xffff;
+            long size = buffer.getInt(entry + 20) & 0xffffffffL;
+            int nameLength = buffer.getShort(entry + 28) & 0xffff;
+            int extraLength = buffer.getShort(entry + 30) & 0xffff;
+            int commentLength = buffer.getShort(entry + 32) & 0xffff;
+            long localOffset = buffer.getInt(entry + 42) & 0xffffffffL;
+            String name = readName(buffer, entry + CENTRAL_HEADER_SIZE, nameLength);
+            if (method == METHOD_STORED && (flags & FLAG_ENCRYPTED) == 0 && size > 0
+                    && name.startsWith(ASSETS) && !name.endsWith("/")) {
+                //本地文件头中的扩展字段和中央目录中的可能不同,zipalign会在本地文件头中填充对齐
+                long dataOffset = getDataOffset(buffer, localOffset, eocd);
+                if (dataOffset > 0 && dataOffset + size <= directoryOffset) {
+                    offsets.put(name.substring(ASSETS.length()), dataOffset);
+                }
+            }
+            entry += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return offsets;
+    }
+
+    private static long getDataOffset(MappedByteBuffer buffer, long localOffset, int limit) {
+        if (localOffset + LOCAL_HEADER_SIZE > limit) return -1;
+        int local = (int) localOffset;
+        if (buffer.getInt(local) != LOCAL_SIGNATURE) return -1;
+        int nameLength = buffer.getShort(local + 26) & 0xffff;
+        int extraLength = buffer.getShort(local + 28) & 0xffff;
+        return localOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private static String readName(MappedByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer name = buffer.duplicate();
+        name.position(offset);
+        name.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * 取出一个打开的apk文件并定位到assets下文件的数据开始的位置,
+     * 可以通过{@link android.graphics.BitmapFactory#decodeFileDescriptor}从当前位置直接解码,
+     * 使用后需要调用{@link #release(RandomAccessFile)}
+     *
+     * @param path assets下的路径
+     * @return 文件是压缩存储的或者不存在, 已经关闭, apk文件已经被替换时为null
+     */
+    RandomAccessFile acquire(String path) throws IOException {
+        Long offset = offsets.get(path);
+        if (offset == null) return null;
+        RandomAccessFile raf;
+        synchronized (idleFiles) {
+            if (closed) return null;
+            raf = idleFiles.poll();
+        }
+        if (raf == null) {
+            raf = new RandomAccessFile(file, "r");
+            if (raf.length() != length || file.lastModified() != lastModified) {
+                //apk已经被替换,记录的偏移不再有效
+                closeQuietly(raf);
+                return null;
+            }
+        }
+        try {
+            raf.seek(offset);
+        } catch (IOException e) {
+            closeQuietly(raf);
+            throw e;
+        }
+        return raf;
+    }
+
+    /**
+     * 归还{@link #acquire(String)}取出的apk文件
+     */
+    void release(RandomAccessFile raf) {
+        synchronized (idleFiles) {
+            if (!closed && idleFiles.size() < MAX_IDLE_FILES) {
+                idleFiles.push(raf);
+                return;
+            }
+        }
+        closeQuietly(raf);
+    }
+
+    /**
+     * 切换到其他skin后关闭打开的apk文件,正在使用的文件归还时关闭,之后不再直接读取
+     */
+    void close() {
+        List<RandomAccessFile> files;
+        synchronized (idleFiles) {
+            closed = true;
+            files = new ArrayList<>(idleFiles);
+            idleFiles.clear();
+        }
+        for (RandomAccessFile raf : files) {
+            closeQuietly(raf);
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile raf) {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
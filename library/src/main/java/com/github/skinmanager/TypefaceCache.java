@@ -0,0 +1,90 @@
+package com.github.skinmanager;
+
+import android.graphics.Typeface;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import io.reactivex.annotations.Nullable;
+
+/**
+ * skin中字体的缓存,不同的字体可以在多个线程中同时加载.
+ * 同一个字体正在加载时,其他线程获取该字体会等待这次加载的结果,不会重复加载.
+ * skin中没有的字体也会记录下来,之后获取时直接返回null,不会再次尝试加载
+ */
+final class TypefaceCache {
+
+    /**
+     * skin中没有该字体
+     */
+    private static final Object MISSING = new Object();
+
+    /**
+     * 值为加载完成的{@link Typeface},{@link #MISSING},或者正在加载的{@link FutureTask}
+     */
+    private final ConcurrentHashMap<String, Object> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 获取缓存的字体,没有缓存时使用loader进行加载并缓存
+     *
+     * @param name   字体名称
+     * @param loader 加载字体,在调用该方法的线程中执行,字体不存在时返回null
+     * @return 字体, skin中没有该字体时为null
+     */
+    @Nullable
+    Typeface getOrLoad(final String name, final Callable<Typeface> loader) {
+        Object value = entries.get(name);
+        if (value == null) {
+            LoadTask task = new LoadTask(name, loader);
+            value = entries.putIfAbsent(name, task);
+            if (value == null) {
+                value = task;
+                task.run();
+            }
+        }
+        if (value instanceof Typeface) {
+            return (Typeface) value;
+        }
+        if (value == MISSING) {
+            return null;
+        }
+        try {
+            //noinspection unchecked
+            return ((FutureTask<Typeface>) value).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 加载完成后将结果替换到缓存中
+     */
+    private final class LoadTask extends FutureTask<Typeface> {
+        private final String name;
+
+        LoadTask(String name, Callable<Typeface> loader) {
+            super(loader);
+            this.name = name;
+        }
+
+        @Override
+        protected void done() {
+            Typeface typeface = null;
+            try {
+                typeface = get();
+            } catch (Exception ignored) {
+            }
+            //加载过程中缓存被清空时不再放入,避免切换skin后放入旧的skin的字体
+            entries.replace(name, this, typeface == null ? MISSING : typeface);
+        }
+    }
+}
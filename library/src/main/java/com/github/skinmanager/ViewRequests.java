@@ -0,0 +1,94 @@
+package com.github.skinmanager;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.WeakHashMap;
+
+import io.reactivex.annotations.Nullable;
+import io.reactivex.disposables.CompositeDisposable;
+
+/**
+ * 控件还没有完成的加载任务,控件从窗口移除或者所在的{@link SkinActivity}销毁时取消,
+ * 取消的任务在开始解码前就会结束.
+ * 被取消过任务的控件重新添加到窗口时,会按照注册表中的记录重新设置一次.
+ * 只在主线程中使用
+ */
+final class ViewRequests implements View.OnAttachStateChangeListener {
+
+    private final SkinManager manager;
+    private final WeakHashMap<View, CompositeDisposable> requests = new WeakHashMap<>();
+    /**
+     * 从窗口移除时取消了任务的控件,仍然监听着添加到窗口
+     */
+    private final WeakHashMap<View, Boolean> interrupted = new WeakHashMap<>();
+
+    ViewRequests(SkinManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * 将任务和控件以及控件所在的界面关联,任务结束时通过{@link SkinApplyQueue.Task}自己解除关联
+     */
+    void track(SkinApplyQueue.Task<?> task, View view) {
+        CompositeDisposable tasks = requests.get(view);
+        if (tasks == null) {
+            tasks = new CompositeDisposable();
+            requests.put(view, tasks);
+            if (interrupted.get(view) == null) {
+                view.addOnAttachStateChangeListener(this);
+            }
+        }
+        task.attach(tasks, ownerOf(view));
+    }
+
+    /**
+     * 取消控件以及所有子控件还没有完成的加载任务
+     */
+    void cancel(View root) {
+        CompositeDisposable tasks = requests.remove(root);
+        if (tasks != null) {
+            tasks.dispose();
+        }
+        if (root instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) root;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                cancel(group.getChildAt(i));
+            }
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+        if (interrupted.remove(v) != null) {
+            v.removeOnAttachStateChangeListener(this);
+            manager.replay(v);
+        }
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        CompositeDisposable tasks = requests.remove(v);
+        if (tasks != null && tasks.size() > 0) {
+            tasks.dispose();
+            interrupted.put(v, Boolean.TRUE);
+        } else if (interrupted.get(v) == null) {
+            v.removeOnAttachStateChangeListener(this);
+        }
+    }
+
+    /**
+     * @return 控件所在的SkinActivity的任务集合, 不在SkinActivity中时为null
+     */
+    @Nullable
+    private static CompositeDisposable ownerOf(View view) {
+        Context context = view.getContext();
+        while (context instanceof ContextWrapper && !(context instanceof Activity)) {
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return context instanceof SkinActivity ? ((SkinActivity) context).skinRequests : null;
+    }
+}
@@ -0,0 +1,208 @@
+package com.github.skinmanager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 使用和zipalign对齐后相同结构的zip文件检查读取的数据偏移:
+ * 本地文件头的扩展字段中填充了对齐用的字节,中央目录中的扩展字段为空
+ */
+public class StoredAssetsTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsAlignedStoredAssets() throws IOException {
+        File apk = new ZipBuilder()
+                .add("AndroidManifest.xml", bytes(37), METHOD_DEFLATED, 0)
+                .add("assets/Example/a.png", bytes(13), METHOD_STORED, 0)
+                .add("assets/Example/b.png", bytes(101), METHOD_STORED, 0)
+                .write(folder.newFile("skin.apk"), "comment");
+        StoredAssets stored = StoredAssets.build(apk.getPath());
+        assertNotNull(stored);
+        assertData(stored, "Example/a.png", bytes(13));
+        assertData(stored, "Example/b.png", bytes(101));
+    }
+
+    @Test
+    public void skipsEntriesThatCannotBeReadDirectly() throws IOException {
+        File apk = new ZipBuilder()
+                .add("assets/Example/", new byte[0], METHOD_STORED, 0)
+                .add("assets/Example/deflated.png", bytes(20), METHOD_DEFLATED, 0)
+                .add("assets/Example/encrypted.png", bytes(20), METHOD_STORED, 1)
+                .add("res/drawable/c.png", bytes(20), METHOD_STORED, 0)
+                .add("assets/Example/d.png", bytes(20), METHOD_STORED, 0)
+                .write(folder.newFile("skin.apk"), "");
+        StoredAssets stored = StoredAssets.build(apk.getPath());
+        assertNotNull(stored);
+        assertNull(stored.acquire("Example/"));
+        assertNull(stored.acquire("Example/deflated.png"));
+        assertNull(stored.acquire("Example/encrypted.png"));
+        assertNull(stored.acquire("../res/drawable/c.png"));
+        assertData(stored, "Example/d.png", bytes(20));
+    }
+
+    @Test
+    public void invalidFileIsNotRead() throws IOException {
+        File apk = folder.newFile("skin.apk");
+        FileOutputStream os = new FileOutputStream(apk);
+        try {
+            os.write(bytes(200));
+        } finally {
+            os.close();
+        }
+        assertNull(StoredAssets.build(apk.getPath()));
+        assertNull(StoredAssets.build(new File(folder.getRoot(), "missing.apk").getPath()));
+    }
+
+    @Test
+    public void replacedFileIsNotReopened() throws IOException {
+        File apk = new ZipBuilder()
+                .add("assets/Example/a.png", bytes(13), METHOD_STORED, 0)
+                .write(folder.newFile("skin.apk"), "");
+        StoredAssets stored = StoredAssets.build(apk.getPath());
+        assertNotNull(stored);
+        RandomAccessFile loaded = stored.acquire("Example/a.png");
+        assertNotNull(loaded);
+
+        //和下载安装一样写入新文件后替换到原来的路径
+        File replacement = new ZipBuilder()
+                .add("assets/Example/z.png", bytes(7), METHOD_STORED, 0)
+                .add("assets/Example/a.png", bytes(50), METHOD_STORED, 0)
+                .write(folder.newFile("skin.apk.tmp"), "");
+        assertTrue(replacement.renameTo(apk));
+        //加载时打开的文件仍然是原来的apk,新打开的文件和记录的偏移不一致
+        assertNull(stored.acquire("Example/a.png"));
+        assertArrayEquals(bytes(13), read(loaded, 13));
+        stored.release(loaded);
+        assertData(stored, "Example/a.png", bytes(13));
+    }
+
+    @Test
+    public void closedAssetsAreNotRead() throws IOException {
+        File apk = new ZipBuilder()
+                .add("assets/Example/a.png", bytes(13), METHOD_STORED, 0)
+                .write(folder.newFile("skin.apk"), "");
+        StoredAssets stored = StoredAssets.build(apk.getPath());
+        assertNotNull(stored);
+        stored.close();
+        assertNull(stored.acquire("Example/a.png"));
+    }
+
+    private static void assertData(StoredAssets stored, String path, byte[] expected) throws IOException {
+        RandomAccessFile raf = stored.acquire(path);
+        assertNotNull(raf);
+        try {
+            assertEquals(0, raf.getFilePointer() % ZipBuilder.ALIGNMENT);
+            assertArrayEquals(expected, read(raf, expected.length));
+        } finally {
+            stored.release(raf);
+        }
+    }
+
+    private static byte[] read(RandomAccessFile raf, int length) throws IOException {
+        byte[] data = new byte[length];
+        raf.readFully(data);
+        return data;
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (length + i);
+        }
+        return data;
+    }
+
+    /**
+     * 按zipalign的方式写入zip文件,STORED的数据对齐到4字节
+     */
+    private static final class ZipBuilder {
+
+        static final int ALIGNMENT = 4;
+
+        private final List<Object[]> entries = new ArrayList<>();
+
+        ZipBuilder add(String name, byte[] data, int method, int flags) {
+            entries.add(new Object[]{name.getBytes(UTF_8), data, method, flags});
+            return this;
+        }
+
+        File write(File file, String comment) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream central = new ByteArrayOutputStream();
+            for (Object[] entry : entries) {
+                byte[] name = (byte[]) entry[0];
+                byte[] data = (byte[]) entry[1];
+                int method = (Integer) entry[2];
+                int flags = (Integer) entry[3];
+                int localOffset = out.size();
+                int padding = 0;
+                if (method == METHOD_STORED) {
+                    int dataOffset = localOffset + 30 + name.length;
+                    padding = (ALIGNMENT - dataOffset % ALIGNMENT) % ALIGNMENT;
+                }
+                ByteBuffer local = header(30);
+                local.putInt(0x04034b50).putShort((short) 10).putShort((short) flags).putShort((short) method)
+                        .putInt(0).putInt(0).putInt(data.length).putInt(data.length)
+                        .putShort((short) name.length).putShort((short) padding);
+                out.write(local.array());
+                out.write(name);
+                out.write(new byte[padding]);
+                out.write(data);
+
+                ByteBuffer header = header(46);
+                header.putInt(0x02014b50).putShort((short) 20).putShort((short) 10).putShort((short) flags)
+                        .putShort((short) method).putInt(0).putInt(0).putInt(data.length).putInt(data.length)
+                        .putShort((short) name.length).putShort((short) 0).putShort((short) 0)
+                        .putShort((short) 0).putShort((short) 0).putInt(0).putInt(localOffset);
+                central.write(header.array());
+                central.write(name);
+            }
+            int directoryOffset = out.size();
+            out.write(central.toByteArray());
+            byte[] commentBytes = comment.getBytes(UTF_8);
+            ByteBuffer eocd = header(22);
+            eocd.putInt(0x06054b50).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) entries.size()).putShort((short) entries.size())
+                    .putInt(central.size()).putInt(directoryOffset).putShort((short) commentBytes.length);
+            out.write(eocd.array());
+            out.write(commentBytes);
+
+            FileOutputStream os = new FileOutputStream(file);
+            try {
+                os.write(out.toByteArray());
+            } finally {
+                os.close();
+            }
+            return file;
+        }
+
+        private static ByteBuffer header(int size) {
+            return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.github.skinmanagersample
 
 import com.github.skinmanager.SkinActivity
+import com.github.skinmanager.SkinManager
 import kotlinx.android.synthetic.main.activity_main.*
 
 class MainActivity : SkinActivity() {
 
+    override fun useSkinLayoutFactory() = true
+
     override fun onCreate() {
         setContentView(R.layout.activity_main)
         setDefaultFolder("Example")
+        SkinManager.getInstance().setSkinKeys(SkinKeys.TABLE)
 
-        setBackground(ivAssets1, "assetsDrawable")
-        setTextColor(tv1)
         setResBackground(ivRes1, "res_drawable")
 
         checkSkinPath() //for launcher check
@@ -23,14 +25,14 @@ class MainActivity : SkinActivity() {
         val assetsDrawable = getDrawable("assetsDrawable")
         ivAssets2.background = assetsDrawable
 
-        tv2.setTextColor(colorPrimary)
+        tv2.setTextColor(getColorPrimary())
 
         ivRes2.background = getResDrawable("res_drawable")
 
-        val colorBackgroundDark = getColor("colorBackgroundDark")
+        val colorBackgroundDark = getSkinColor(SkinKeys.color.colorBackgroundDark)
         llWhole.setBackgroundColor(colorBackgroundDark)
 
-        val assetsDrawableJPG = getJPGDrawable("assetsDrawable")
+        val assetsDrawableJPG = getSkinDrawable(SkinKeys.drawable.Example_assetsDrawable_jpg)
 
         changeSkin(DEFAULT_PATH_US) {}  //for changeSKin
 
@@ -0,0 +1,228 @@
+package com.github.skinmanagersample
+
+import android.app.Activity
+import android.os.Looper
+import android.view.View
+import android.widget.ImageView
+import android.widget.LinearLayout
+import android.widget.TextView
+import com.github.skinmanager.DefaultSkinScheduler
+import com.github.skinmanager.SkinManager
+import com.github.skinmanager.SkinScheduler
+import io.reactivex.Scheduler
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.GraphicsMode
+import org.robolectric.annotation.LooperMode
+import java.io.File
+import java.lang.management.ManagementFactory
+import java.util.Locale
+import java.util.concurrent.Executors
+import java.util.concurrent.PriorityBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * 切换skin的耗时:从调用changeSkin到所有控件都重新设置完成.
+ * 界面中有N个设置了skin资源的控件,在SkinExample打包出的两个skin之间切换K次,
+ * 输出耗时的p50/p95/p99,以及切换过程中分配的内存和GC次数.
+ * 分配的内存是所有存活线程分配过的内存在切换前后的差值,在两次统计之间退出的线程分配的内存会丢失,
+ * 所以测试期间加载skin的io线程和加载资源的工作线程都替换为预先启动并且不会退出的固定线程
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [28])
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+@LooperMode(LooperMode.Mode.PAUSED)
+class SkinSwitchBenchmark {
+
+    @Test
+    fun switchLatency() {
+        val skins = listOf(System.getProperty("skinSwitch.skinA"), System.getProperty("skinSwitch.skinB"))
+        for (skin in skins) {
+            assertTrue("SkinExample has not been built: $skin", skin != null && File(skin).isFile)
+        }
+        val viewCount = Integer.getInteger("skinSwitch.views", 200)
+        val switchCount = Integer.getInteger("skinSwitch.switches", 50)
+        val warmupCount = Integer.getInteger("skinSwitch.warmup", 5)
+
+        val skinManager = SkinManager.getInstance()
+        val ioExecutor = Executors.newFixedThreadPool(IO_THREADS) as ThreadPoolExecutor
+        ioExecutor.prestartAllCoreThreads()
+        val io: Scheduler = Schedulers.from(ioExecutor)
+        RxJavaPlugins.setIoSchedulerHandler { io }
+        val workers = PinnedScheduler(WORKER_THREADS)
+        skinManager.setScheduler(workers)
+        try {
+            measure(skinManager, skins, viewCount, switchCount, warmupCount)
+        } finally {
+            skinManager.setScheduler(DefaultSkinScheduler())
+            RxJavaPlugins.setIoSchedulerHandler(null)
+            workers.shutdown()
+            ioExecutor.shutdownNow()
+        }
+    }
+
+    private fun measure(skinManager: SkinManager, skins: List<String?>, viewCount: Int, switchCount: Int,
+                        warmupCount: Int) {
+        val activity = Robolectric.buildActivity(Activity::class.java).setup().get()
+        var loaded = false
+        skinManager.initResource(activity.applicationContext, skins[0]) { loaded = true }
+        awaitMain { loaded }
+        activity.setContentView(createScreen(activity, skinManager, viewCount))
+        awaitMain { true }
+
+        var switched = false
+        val listener = object : SkinManager.OnSkinChangeListener {
+            override fun onSkinChange(path: String) {
+            }
+
+            override fun onSkinChangeComplete(path: String) {
+                switched = true
+            }
+        }
+        skinManager.registerOnSkinChangeListener(activity, listener)
+
+        val latencies = LongArray(switchCount)
+        var gcBefore = 0L
+        var allocatedBefore = 0L
+        for (i in 0 until warmupCount + switchCount) {
+            if (i == warmupCount) {
+                gcBefore = gcCount()
+                allocatedBefore = allocatedBytes()
+            }
+            switched = false
+            val start = System.nanoTime()
+            skinManager.changeSkin(activity, skins[(i + 1) % 2]) {}
+            awaitMain { switched }
+            if (i >= warmupCount) {
+                latencies[i - warmupCount] = System.nanoTime() - start
+            }
+        }
+        val gcs = gcCount() - gcBefore
+        val allocated = if (allocatedBefore < 0) -1L else allocatedBytes() - allocatedBefore
+        skinManager.unregisterOnSkinChangeListener(listener)
+
+        latencies.sort()
+        val result = String.format(Locale.US,
+                "{\n  \"views\": %d,\n  \"switches\": %d,\n  \"p50Millis\": %.3f,\n  \"p95Millis\": %.3f," +
+                        "\n  \"p99Millis\": %.3f,\n  \"maxMillis\": %.3f,\n  \"allocatedBytes\": %d," +
+                        "\n  \"allocatedBytesPerSwitch\": %d,\n  \"gcCount\": %d\n}\n",
+                viewCount, switchCount, percentile(latencies, 50.0), percentile(latencies, 95.0),
+                percentile(latencies, 99.0), latencies[latencies.size - 1] / 1e6, allocated,
+                if (allocated < 0) -1L else allocated / switchCount, gcs)
+        println(result)
+        val output = File(System.getProperty("skinSwitch.output", "build/benchmark/skin-switch.json"))
+        output.parentFile?.mkdirs()
+        output.writeText(result)
+    }
+
+    /**
+     * 一半是设置文字颜色的TextView,一半是设置背景图片的ImageView
+     */
+    private fun createScreen(activity: Activity, skinManager: SkinManager, viewCount: Int): View {
+        val layout = LinearLayout(activity)
+        layout.orientation = LinearLayout.VERTICAL
+        for (i in 0 until viewCount) {
+            if (i % 2 == 0) {
+                val textView = TextView(activity)
+                textView.text = "example$i"
+                skinManager.setTextColor(textView, "colorText")
+                layout.addView(textView)
+            } else {
+                val imageView = ImageView(activity)
+                skinManager.setBackground(imageView, "assetsDrawable", "Example")
+                layout.addView(imageView)
+            }
+        }
+        return layout
+    }
+
+    /**
+     * 执行主线程中的消息直到满足条件,资源在工作线程中加载,加载完成后在主线程中设置到控件上
+     */
+    private fun awaitMain(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + TIMEOUT_MILLIS
+        do {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for the skin to be applied")
+            }
+            shadowOf(Looper.getMainLooper()).runToEndOfTasks()
+            Thread.yield()
+        } while (!condition())
+    }
+
+    /**
+     * 最近秩法计算百分位数
+     *
+     * @return 毫秒
+     */
+    private fun percentile(sorted: LongArray, percent: Double): Double {
+        val rank = Math.ceil(percent / 100 * sorted.size).toInt().coerceIn(1, sorted.size)
+        return sorted[rank - 1] / 1e6
+    }
+
+    /**
+     * @return 所有存活线程分配过的内存, 虚拟机不支持时为-1
+     */
+    private fun allocatedBytes(): Long {
+        val bean = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean ?: return -1
+        if (!bean.isThreadAllocatedMemorySupported) return -1
+        return bean.getThreadAllocatedBytes(bean.allThreadIds).filter { it > 0 }.sum()
+    }
+
+    private fun gcCount(): Long {
+        return ManagementFactory.getGarbageCollectorMXBeans().map { it.collectionCount.coerceAtLeast(0L) }.sum()
+    }
+
+    /**
+     * 和DefaultSkinScheduler相同的优先级顺序,线程预先启动并且空闲时不会退出
+     */
+    private class PinnedScheduler(threads: Int) : SkinScheduler {
+        private val sequence = AtomicLong()
+        private val executor = ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                PriorityBlockingQueue<Runnable>())
+
+        init {
+            executor.prestartAllCoreThreads()
+        }
+
+        override fun execute(task: Runnable, priority: Int) {
+            executor.execute(PriorityTask(task, priority, sequence.getAndIncrement()))
+        }
+
+        override fun remove(task: Runnable): Boolean {
+            return executor.queue.removeIf { it is PriorityTask && it.task === task }
+        }
+
+        override fun getThreadCount(): Int = executor.poolSize
+
+        override fun getQueueDepth(): Int = executor.queue.size
+
+        fun shutdown() {
+            executor.shutdownNow()
+        }
+    }
+
+    private class PriorityTask(val task: Runnable, val priority: Int, val sequence: Long) :
+            Runnable, Comparable<PriorityTask> {
+        override fun run() = task.run()
+
+        override fun compareTo(other: PriorityTask): Int =
+                compareValuesBy(this, other, { it.priority }, { it.sequence })
+    }
+
+    companion object {
+        private const val TIMEOUT_MILLIS = 30000L
+        private const val IO_THREADS = 2
+        private val WORKER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors())
+    }
+}